@@ -0,0 +1,57 @@
+package com.threshold.toolbox.benchmark;
+
+import com.threshold.toolbox.Resample;
+
+import java.util.Random;
+
+/**
+ * test signal for benchmarks: 440Hz sine plus a little noise, half full scale.
+ */
+final class AudioData {
+
+    private AudioData() {
+        throw new IllegalStateException("no instance");
+    }
+
+    /**
+     * @param sampleRate 采样率
+     * @param blockMs    block duration in ms
+     * @return frames of one block
+     */
+    static int frames(final int sampleRate, final int blockMs) {
+        return sampleRate * blockMs / 1000;
+    }
+
+    /**
+     * interleaved PCM of frames * channels samples.
+     */
+    static byte[] pcm(final Resample.SampleUnit unit, final int sampleRate, final int channels, final int frames) {
+        final int sampleSize = unit.getBytesPerSample();
+        final byte[] data = new byte[frames * channels * sampleSize];
+        final Random random = new Random(frames);
+        for (int i = 0; i < frames; i++) {
+            final double value = 0.5 * Math.sin(2 * Math.PI * 440 * i / sampleRate) + 0.01 * random.nextGaussian();
+            for (int ch = 0; ch < channels; ch++) {
+                final int offset = (i * channels + ch) * sampleSize;
+                switch (unit) {
+                    case INT8:
+                        data[offset] = (byte) (128 + Math.round(value * 127));
+                        break;
+                    case INT16:
+                        Resample.writeInt16LE(data, offset, (short) Math.round(value * 32767));
+                        break;
+                    case INT24:
+                        Resample.writeInt24LE(data, offset, (int) Math.round(value * 8388607));
+                        break;
+                    case INT32:
+                        Resample.writeInt32LE(data, offset, (int) Math.round(value * Integer.MAX_VALUE));
+                        break;
+                    default:
+                        Resample.writeFloat32LE(data, offset, (float) value);
+                        break;
+                }
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,87 @@
+package com.threshold.toolbox.benchmark;
+
+import com.threshold.toolbox.BitConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * walk a whole buffer of little endian values per op, like parsing one block of samples.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitConverterBenchmark {
+
+    // 10/20/100 ms of 16k mono 16bit
+    @Param({"320", "640", "3200"})
+    public int size;
+
+    private byte[] mBytes;
+    private byte[] mOut;
+
+    @Setup
+    public void setup() {
+        mBytes = new byte[size];
+        new Random(size).nextBytes(mBytes);
+        mOut = new byte[size];
+    }
+
+    @Benchmark
+    public int toInt16() {
+        int sum = 0;
+        for (int i = 0; i + 2 <= size; i += 2) {
+            sum += BitConverter.toInt16(mBytes, i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int toInt32() {
+        int sum = 0;
+        for (int i = 0; i + 4 <= size; i += 4) {
+            sum += BitConverter.toInt32(mBytes, i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float toFloat() {
+        float sum = 0;
+        for (int i = 0; i + 4 <= size; i += 4) {
+            sum += BitConverter.toFloat(mBytes, i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public byte[] toBytesInt() {
+        for (int i = 0; i + 4 <= size; i += 4) {
+            BitConverter.toBytes(i, mOut, i);
+        }
+        return mOut;
+    }
+
+    @Benchmark
+    public void getBytesInt(final Blackhole blackhole) {
+        for (int i = 0; i + 4 <= size; i += 4) {
+            blackhole.consume(BitConverter.getBytes(i));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.threshold.toolbox.benchmark;
+
+import com.threshold.toolbox.ByteRing;
+import com.threshold.toolbox.MpscByteRing;
+import com.threshold.toolbox.SpscByteRing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * pure java rings, the jni {@code RingBuffer} needs android and is not covered here.
+ * <p> single thread write then read shows the cost of one block passing the ring,
+ * producer/consumer group shows the contended throughput, ops of both sides are summed. </p>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteRingBenchmark {
+
+    public enum RingType {
+        SPSC,
+        MPSC
+    }
+
+    @Param({"SPSC", "MPSC"})
+    public RingType ringType;
+
+    // 10/20/100 ms of 16k mono 16bit
+    @Param({"320", "640", "3200"})
+    public int blockSize;
+
+    private ByteRing mRing;
+    private byte[] mWriteBlock;
+    private byte[] mReadBlock;
+
+    @Setup
+    public void setup() {
+        mRing = RingType.SPSC == ringType ? new SpscByteRing(64 * 1024) : new MpscByteRing(64 * 1024);
+        mWriteBlock = new byte[blockSize];
+        mReadBlock = new byte[blockSize];
+    }
+
+    @TearDown
+    public void tearDown() {
+        mRing.close();
+    }
+
+    @Benchmark
+    public int writeThenRead() {
+        mRing.write(mWriteBlock, 0, blockSize);
+        return mRing.read(mReadBlock, 0, blockSize);
+    }
+
+    // zero-copy read side, MpscByteRing is not a ZeroCopyByteRing so the write side copies
+    @Benchmark
+    public int writeThenAcquire() {
+        mRing.write(mWriteBlock, 0, blockSize);
+        final ByteBuffer[] regions = mRing.acquireRead(blockSize);
+        int read = 0;
+        for (ByteBuffer region : regions) {
+            final int len = region.remaining();
+            region.get(mReadBlock, read, len);
+            read += len;
+        }
+        return mRing.releaseRead(read);
+    }
+
+    @Benchmark
+    @Group("producerConsumer")
+    public int producer() {
+        return mRing.write(mWriteBlock, 0, blockSize);
+    }
+
+    @Benchmark
+    @Group("producerConsumer")
+    public int consumer() {
+        return mRing.read(mReadBlock, 0, blockSize);
+    }
+}
@@ -0,0 +1,67 @@
+package com.threshold.toolbox.benchmark;
+
+import com.threshold.toolbox.BufferWrapper;
+import com.threshold.toolbox.ByteUtil;
+import com.threshold.toolbox.Resample;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 16bit sample format conversion, one block of 16k audio per op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteUtilBenchmark {
+
+    @Param({"1", "2"})
+    public int channels;
+
+    @Param({"10", "20", "100"})
+    public int blockMs;
+
+    private byte[] mPcm;
+    private BufferWrapper mIn;
+    private BufferWrapper mOut;
+    private byte[] mFloatBytes;
+
+    @Setup
+    public void setup() {
+        mPcm = AudioData.pcm(Resample.SampleUnit.INT16, 16000, channels, AudioData.frames(16000, blockMs));
+        mIn = new BufferWrapper(mPcm, mPcm.length);
+        mOut = new BufferWrapper(mPcm.length * 2);
+        mFloatBytes = new byte[mPcm.length * 2];
+    }
+
+    @Benchmark
+    public BufferWrapper transform16bitTo32bitSigned() {
+        ByteUtil.transform16bitTo32bitSigned(mIn, mOut);
+        return mOut;
+    }
+
+    @Benchmark
+    public float[] convertShortToFloatArray() {
+        return ByteUtil.convertShortToFloat(mPcm);
+    }
+
+    @Benchmark
+    public byte[] convertShortToFloatBytes() {
+        ByteUtil.convertShortToFloat(mPcm, mFloatBytes);
+        return mFloatBytes;
+    }
+}
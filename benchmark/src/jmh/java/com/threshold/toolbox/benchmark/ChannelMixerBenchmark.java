@@ -0,0 +1,74 @@
+package com.threshold.toolbox.benchmark;
+
+import com.threshold.toolbox.ChannelMixer;
+import com.threshold.toolbox.Resample;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * one block of 16k mic array audio per op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChannelMixerBenchmark {
+
+    @Param({"INT16", "INT32", "FLOAT32"})
+    public Resample.SampleUnit sampleUnit;
+
+    @Param({"4", "6"})
+    public int channels;
+
+    @Param({"10", "20", "100"})
+    public int blockMs;
+
+    private int mFrames;
+    private byte[] mIn;
+    private byte[] mOut;
+    private ChannelMixer mPick;
+    private ChannelMixer mDownmix;
+    private ChannelMixer mDownmixToFloat;
+
+    @Setup
+    public void setup() {
+        mFrames = AudioData.frames(16000, blockMs);
+        mIn = AudioData.pcm(sampleUnit, 16000, channels, mFrames);
+        mOut = new byte[mFrames * 2 * 4];
+        mPick = ChannelMixer.route(channels, new int[]{channels - 1, 0}, sampleUnit, sampleUnit);
+        mDownmix = ChannelMixer.downmixToMono(channels, sampleUnit, sampleUnit);
+        mDownmixToFloat = ChannelMixer.downmixToMono(channels, sampleUnit, Resample.SampleUnit.FLOAT32);
+    }
+
+    @Benchmark
+    public byte[] pickTwo() {
+        mPick.process(mIn, 0, mFrames, mOut, 0);
+        return mOut;
+    }
+
+    @Benchmark
+    public byte[] downmixToMono() {
+        mDownmix.process(mIn, 0, mFrames, mOut, 0);
+        return mOut;
+    }
+
+    @Benchmark
+    public byte[] downmixToMonoFloat() {
+        mDownmixToFloat.process(mIn, 0, mFrames, mOut, 0);
+        return mOut;
+    }
+}
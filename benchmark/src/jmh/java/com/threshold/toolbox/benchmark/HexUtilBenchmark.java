@@ -0,0 +1,62 @@
+package com.threshold.toolbox.benchmark;
+
+import com.threshold.toolbox.HexUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HexUtilBenchmark {
+
+    @Param({"16", "320", "3200"})
+    public int size;
+
+    private byte[] mBytes;
+    private String mHex;
+    private String mHexWithDelimiter;
+
+    @Setup
+    public void setup() {
+        mBytes = new byte[size];
+        new Random(size).nextBytes(mBytes);
+        mHex = HexUtil.encode(mBytes);
+        mHexWithDelimiter = HexUtil.encode(mBytes, " ");
+    }
+
+    @Benchmark
+    public String encode() {
+        return HexUtil.encode(mBytes);
+    }
+
+    @Benchmark
+    public String encodeWithDelimiter() {
+        return HexUtil.encode(mBytes, " ");
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return HexUtil.decode(mHex);
+    }
+
+    @Benchmark
+    public byte[] decodeWithDelimiter() {
+        return HexUtil.decode(mHexWithDelimiter, " ");
+    }
+}
@@ -0,0 +1,94 @@
+package com.threshold.toolbox.benchmark;
+
+import com.threshold.toolbox.BufferWrapper;
+import com.threshold.toolbox.PolyphaseResampler;
+import com.threshold.toolbox.Resample;
+import com.threshold.toolbox.StreamingResampler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * one block of audio per op, throughput in blocks per ms.
+ * <p> real time budget of a block is blockMs, so ops/ms * blockMs is how many times faster than real time. </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResampleBenchmark {
+
+    @Param({"INT16", "INT24", "INT32", "FLOAT32"})
+    public Resample.SampleUnit sampleUnit;
+
+    @Param({"1", "2"})
+    public int channels;
+
+    @Param({"10", "20", "100"})
+    public int blockMs;
+
+    private BufferWrapper mIn16k;
+    private BufferWrapper mIn44k;
+    private BufferWrapper mIn48k;
+    private BufferWrapper mOut;
+    private PolyphaseResampler mPolyphaseDown;
+    private StreamingResampler mStreamingUp;
+
+    @Setup
+    public void setup() {
+        mIn16k = block(16000);
+        mIn44k = block(44100);
+        mIn48k = block(48000);
+        mPolyphaseDown = new PolyphaseResampler(44100, 16000, channels, sampleUnit);
+        mStreamingUp = new StreamingResampler(16000, 44100, channels, sampleUnit);
+        final int frameBytes = sampleUnit.getBytesPerSample() * channels;
+        // largest output: 16k -> 48k
+        mOut = new BufferWrapper((AudioData.frames(16000, blockMs) * 3 + 16) * frameBytes);
+    }
+
+    private BufferWrapper block(final int sampleRate) {
+        final byte[] pcm = AudioData.pcm(sampleUnit, sampleRate, channels, AudioData.frames(sampleRate, blockMs));
+        return new BufferWrapper(pcm, pcm.length);
+    }
+
+    @Benchmark
+    public BufferWrapper upSampleLinear16kTo48k() {
+        Resample.upSampleLinear(mIn16k, channels, 16000, sampleUnit, 48000, mOut);
+        return mOut;
+    }
+
+    @Benchmark
+    public BufferWrapper upSampleSimple16kTo48k() {
+        Resample.upSampleSimple(mIn16k, channels, 16000, sampleUnit, 48000, mOut);
+        return mOut;
+    }
+
+    @Benchmark
+    public BufferWrapper downSample48kTo16k() {
+        Resample.downSample(mIn48k, channels, 48000, sampleUnit, 16000, mOut);
+        return mOut;
+    }
+
+    @Benchmark
+    public int polyphase44kTo16k() {
+        return mPolyphaseDown.process(mIn44k, mOut);
+    }
+
+    @Benchmark
+    public int streaming16kTo44k() {
+        return mStreamingUp.process(mIn16k, mOut);
+    }
+}
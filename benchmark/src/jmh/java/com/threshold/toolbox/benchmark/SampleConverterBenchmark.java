@@ -0,0 +1,65 @@
+package com.threshold.toolbox.benchmark;
+
+import com.threshold.toolbox.Resample;
+import com.threshold.toolbox.SampleConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * one block of 16k stereo audio per op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleConverterBenchmark {
+
+    @Param({"INT16", "INT24", "INT32", "FLOAT32"})
+    public Resample.SampleUnit inUnit;
+
+    @Param({"INT16", "INT24", "FLOAT32"})
+    public Resample.SampleUnit outUnit;
+
+    @Param({"10", "20", "100"})
+    public int blockMs;
+
+    private int mSamples;
+    private byte[] mIn;
+    private byte[] mOut;
+    private float[] mFloats;
+
+    @Setup
+    public void setup() {
+        final int frames = AudioData.frames(16000, blockMs);
+        mSamples = frames * 2;
+        mIn = AudioData.pcm(inUnit, 16000, 2, frames);
+        mOut = new byte[mSamples * outUnit.getBytesPerSample()];
+        mFloats = new float[mSamples];
+    }
+
+    @Benchmark
+    public byte[] convert() {
+        SampleConverter.convert(mIn, 0, inUnit, mOut, 0, outUnit, mSamples);
+        return mOut;
+    }
+
+    @Benchmark
+    public float[] toFloat() {
+        SampleConverter.toFloat(mIn, 0, inUnit, mFloats, 0, mSamples);
+        return mFloats;
+    }
+}
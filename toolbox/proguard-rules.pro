@@ -153,6 +153,21 @@
 -keep class com.threshold.toolbox.RingBuffer{
     public <methods>;
 }
+-keep class com.threshold.toolbox.RingBuffer$RecordHandler{
+    public <methods>;
+}
+-keep class com.threshold.toolbox.ByteRing{
+    public <methods>;
+}
+-keep class com.threshold.toolbox.JavaByteRing{
+    public <methods>;
+}
+-keep class com.threshold.toolbox.SpscByteRing{
+    public <methods>;
+}
+-keep class com.threshold.toolbox.MpscByteRing{
+    public <methods>;
+}
 
 -keep class com.threshold.toolbox.BitConverter{
     public <methods>;
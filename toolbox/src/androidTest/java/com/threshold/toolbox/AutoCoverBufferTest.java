@@ -13,6 +13,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Instrumented tests for AutoCoverBuffer behaviors exposed by the Java API.
@@ -122,7 +123,7 @@ public class AutoCoverBufferTest {
             // The last 8 bytes of "ABCDEabcde" are "CDEabcde"
             String expectedTail = "CDEabcde";
 
-            int readPos = buf.getWritePos() - 8;
+            long readPos = buf.getWritePos() - 8;
             assertTrue("readPos must be non-negative", readPos >= 0);
             assertTrue("availableReadLen should be at least capacity",
                     buf.availableReadLen(readPos) >= 8);
@@ -138,7 +139,7 @@ public class AutoCoverBufferTest {
     public void read_exact_just_written_region() {
         try (AutoCoverBuffer buf = new AutoCoverBuffer(32)) {
             // Capture readPos before the write to target exactly the region we append.
-            int start = buf.getWritePos();
+            long start = buf.getWritePos();
             byte[] payload = bytes("chunk-1");
             int w = buf.write(payload, 0, payload.length);
             assertEquals(payload.length, w);
@@ -206,7 +207,7 @@ public class AutoCoverBufferTest {
             String concat = a + b;
             String expectedTail = concat.substring(concat.length() - capacity);
 
-            int readPos = buf.getWritePos() - capacity;
+            long readPos = buf.getWritePos() - capacity;
             byte[] out = new byte[capacity];
             int r = buf.read(readPos, out, 0, out.length);
             assertEquals(capacity, r);
@@ -214,6 +215,144 @@ public class AutoCoverBufferTest {
         }
     }
 
+    @Test
+    public void cursors_read_independently_and_detect_overrun() {
+        try (AutoCoverBuffer buf = new AutoCoverBuffer(8)) {
+            AutoCoverBuffer.Cursor c1 = buf.newCursor();
+            AutoCoverBuffer.Cursor c2 = buf.newCursor();
+            assertEquals(0, c1.available());
+            assertEquals(0, c1.read(new byte[4]));
+
+            buf.write(bytes("abcdef"));
+            byte[] out = new byte[8];
+            assertEquals(4, c1.read(out, 0, 4));
+            assertEquals("abcd", str(out, 0, 4));
+            // c2 is not affected by c1
+            assertEquals(6, c2.read(out));
+            assertEquals("abcdef", str(out, 0, 6));
+            assertEquals(2, c1.available());
+
+            // overrun c1: "ef" is covered
+            buf.write(bytes("ghijklmn"));
+            assertEquals(14, buf.getWritePos());
+            assertEquals(AutoCoverBuffer.ERR_DATA_COVERED, c1.read(out));
+            assertEquals(4, c1.position());
+            assertEquals(2, c1.skipToOldest());
+            assertEquals(8, c1.read(out));
+            assertEquals("ghijklmn", str(out, 0, 8));
+
+            AutoCoverBuffer.Cursor c3 = buf.newCursorAtOldest();
+            assertEquals(6, c3.position());
+            assertEquals(8, c3.available());
+        }
+    }
+
+    @Test
+    public void read_reports_overwritten_and_oldest_position() {
+        try (AutoCoverBuffer buf = new AutoCoverBuffer(8)) {
+            AutoCoverBuffer.ReadResult result = new AutoCoverBuffer.ReadResult();
+            byte[] out = new byte[8];
+            buf.write(bytes("abcdef"));
+            assertEquals(AutoCoverBuffer.ERR_DATA_NOT_ENOUGH, buf.read(2, out, 0, 5, result));
+            assertEquals(0, result.getOverwritten());
+            // read is not destructive, read it again
+            assertEquals(4, buf.read(2, out, 0, 4, result));
+            assertEquals(4, buf.read(2, out, 0, 4, result));
+            assertEquals("cdef", str(out, 0, 4));
+
+            buf.write(bytes("ghijk"));
+            assertEquals(AutoCoverBuffer.ERR_DATA_COVERED, buf.read(1, out, 0, 4, result));
+            assertEquals(2, result.getOverwritten());
+            assertEquals(3, result.getOldestPosition());
+            assertEquals(11, result.getWritePosition());
+            assertEquals(4, buf.read(result.getOldestPosition(), out, 0, 4, result));
+            assertEquals("defg", str(out, 0, 4));
+            assertEquals(AutoCoverBuffer.ERR_INVALID_PARAM, buf.read(12, out, 0, 1, result));
+        }
+    }
+
+    @Test
+    public void time_index_reads_data_since_timestamp() throws Exception {
+        try (AutoCoverBuffer buf = new AutoCoverBuffer(16, 8)) {
+            byte[] out = new byte[16];
+            buf.write(bytes("abcd"));
+            Thread.sleep(2);
+            final long t1 = System.nanoTime();
+            buf.write(bytes("efgh"));
+            Thread.sleep(2);
+            final long t2 = System.nanoTime();
+            buf.write(bytes("ij"));
+
+            assertEquals(4, buf.positionAt(t1));
+            assertEquals(8, buf.positionAt(t2));
+            assertEquals(10, buf.positionAt(System.nanoTime()));
+            assertEquals(6, buf.readSince(t1, out, 0, out.length));
+            assertEquals("efghij", str(out, 0, 6));
+            assertEquals(3, buf.readSince(t1, out, 0, 3));
+            assertEquals("efg", str(out, 0, 3));
+            assertEquals(10, buf.readLast(1, TimeUnit.MINUTES, out, 0, out.length));
+            assertEquals("abcdefghij", str(out, 0, 10));
+
+            // "ab" is covered, position clamped to oldest
+            buf.write(bytes("klmnopqr"));
+            assertEquals(2, buf.positionAt(0));
+            assertEquals(16, buf.readSince(0, out, 0, out.length));
+            assertEquals("cdefghijklmnopqr", str(out, 0, 16));
+        }
+        try (AutoCoverBuffer buf = new AutoCoverBuffer(16)) {
+            buf.positionAt(0);
+            fail("time index is disabled");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void read_since_with_len_over_capacity_while_writing() throws Exception {
+        final int capacity = 64;
+        try (AutoCoverBuffer buf = new AutoCoverBuffer(capacity, 16)) {
+            final AtomicBoolean running = new AtomicBoolean(true);
+            // every byte is (position % 251), so reader can verify what it copied.
+            Thread writer = new Thread(() -> {
+                final byte[] chunk = new byte[24];
+                long pos = 0;
+                while (running.get()) {
+                    for (int i = 0; i < chunk.length; i++) {
+                        chunk[i] = (byte) ((pos + i) % 251);
+                    }
+                    buf.write(chunk);
+                    pos += chunk.length;
+                }
+            });
+            writer.start();
+            try {
+                // guard bytes after capacity must stay untouched, data never be 0xFF
+                byte[] out = new byte[capacity * 4];
+                for (int round = 0; round < 20000; round++) {
+                    Arrays.fill(out, (byte) 0xFF);
+                    final int r = buf.readSince(0, out, 0, out.length);
+                    if (AutoCoverBuffer.ERR_DATA_COVERED == r) {
+                        continue;
+                    }
+                    assertTrue("read " + r, r >= 0 && r <= capacity);
+                    for (int i = r; i < out.length; i++) {
+                        assertEquals((byte) 0xFF, out[i]);
+                    }
+                    // data read must be continuous, no byte of a newer round mixed in
+                    if (r > 0) {
+                        final int first = out[0] & 0xFF;
+                        for (int i = 1; i < r; i++) {
+                            assertEquals((byte) ((first + i) % 251), out[i]);
+                        }
+                    }
+                }
+            } finally {
+                running.set(false);
+                writer.join();
+            }
+        }
+    }
+
     // ----------- Utility for concurrent test -----------
 
     private static String repeat(String s, int n) {
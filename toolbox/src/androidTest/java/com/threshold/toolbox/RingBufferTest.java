@@ -10,6 +10,8 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.nio.ByteBuffer;
+
 @RunWith(AndroidJUnit4.class)
 public class RingBufferTest {
 
@@ -74,4 +76,170 @@ public class RingBufferTest {
         LLog.i("bye bye...");
     }
 
+    @Test
+    public void testDirectByteBuffer() {
+        final RingBuffer ringBuffer = new RingBuffer(16);
+        final ByteBuffer src = ByteBuffer.allocateDirect(20);
+        for (int i = 0; i < src.capacity(); i++) {
+            src.put((byte) i);
+        }
+        src.flip();
+        src.position(2);
+        Assert.assertEquals(16, ringBuffer.write(src));
+        Assert.assertEquals(18, src.position());
+
+        final ByteBuffer dst = ByteBuffer.allocateDirect(8);
+        Assert.assertEquals(8, ringBuffer.peek(dst));
+        Assert.assertEquals(8, dst.position());
+        Assert.assertEquals(16, ringBuffer.availableReadLen());
+
+        dst.clear();
+        Assert.assertEquals(8, ringBuffer.read(dst));
+        Assert.assertEquals(2, dst.get(0));
+        Assert.assertEquals(9, dst.get(7));
+
+        final ByteBuffer heap = ByteBuffer.allocate(10);
+        Assert.assertEquals(8, ringBuffer.read(heap));
+        Assert.assertEquals(10, heap.get(0));
+        Assert.assertTrue(ringBuffer.isEmpty());
+        ringBuffer.close();
+    }
+
+    @Test
+    public void testReserveCommitWrapAround() {
+        final RingBuffer ringBuffer = new RingBuffer(16);
+        // move read/write position to middle of ring, so next region will wrap.
+        ringBuffer.write(new byte[10]);
+        ringBuffer.discard(10);
+
+        final ByteBuffer[] writeRegions = ringBuffer.reserveWrite(12);
+        Assert.assertEquals(2, writeRegions.length);
+        byte value = 0;
+        for (ByteBuffer region : writeRegions) {
+            while (region.hasRemaining()) {
+                region.put(value++);
+            }
+        }
+        Assert.assertEquals(0, ringBuffer.availableReadLen());
+        Assert.assertEquals(12, ringBuffer.commitWrite(12));
+        Assert.assertEquals(12, ringBuffer.availableReadLen());
+
+        final ByteBuffer[] readRegions = ringBuffer.acquireRead(32);
+        Assert.assertEquals(2, readRegions.length);
+        byte expected = 0;
+        for (ByteBuffer region : readRegions) {
+            while (region.hasRemaining()) {
+                Assert.assertEquals(expected++, region.get());
+            }
+        }
+        Assert.assertEquals(12, ringBuffer.releaseRead(12));
+        Assert.assertTrue(ringBuffer.isEmpty());
+        Assert.assertEquals(0, ringBuffer.acquireRead(1).length);
+        ringBuffer.close();
+    }
+
+    @Test
+    public void testWriteFullyReadAtLeast() throws InterruptedException {
+        final RingBuffer ringBuffer = new RingBuffer(64);
+        final byte[] buffer = new byte[32];
+        // nothing to read: time out with nothing
+        Assert.assertEquals(0, ringBuffer.readAtLeast(buffer, 1, 10));
+
+        final int total = 100 * 1000;
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final byte[] chunk = new byte[100];
+                try {
+                    for (int sent = 0; sent < total; sent += chunk.length) {
+                        for (int i = 0; i < chunk.length; i++) {
+                            chunk[i] = (byte) (sent + i);
+                        }
+                        ringBuffer.writeFully(chunk, 0, chunk.length, -1);
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        producer.start();
+
+        int received = 0;
+        while (received < total) {
+            final int min = Math.min(16, total - received);
+            final int read = ringBuffer.readAtLeast(buffer, min, 5000);
+            Assert.assertTrue(read >= min);
+            for (int i = 0; i < read; i++) {
+                Assert.assertEquals((byte) (received + i), buffer[i]);
+            }
+            received += read;
+        }
+        producer.join();
+        Assert.assertTrue(ringBuffer.isEmpty());
+        ringBuffer.close();
+    }
+
+    @Test
+    public void testWriteAll() {
+        final RingBuffer ringBuffer = new RingBuffer(16);
+        // move write position to middle of ring, so record will wrap.
+        ringBuffer.write(new byte[10]);
+        ringBuffer.discard(10);
+
+        final byte[] header = new byte[]{1, 2, 3};
+        final byte[] payload = new byte[]{0, 4, 5, 6, 7, 8, 9, 10, 11, 12};
+        Assert.assertEquals(12, ringBuffer.writeAll(new byte[][]{header, payload},
+                new int[]{0, 1}, new int[]{header.length, 9}));
+        // not enough space for whole record: nothing written
+        Assert.assertEquals(0, ringBuffer.writeAll(new byte[][]{header, payload},
+                new int[]{0, 0}, new int[]{header.length, 2}));
+        Assert.assertEquals(12, ringBuffer.availableReadLen());
+
+        final byte[] out = new byte[12];
+        Assert.assertEquals(12, ringBuffer.read(out));
+        for (int i = 0; i < out.length; i++) {
+            Assert.assertEquals(i + 1, out[i]);
+        }
+        ringBuffer.close();
+    }
+
+    @Test
+    public void testRecords() {
+        final RingBuffer ringBuffer = new RingBuffer(256);
+        final byte[] data = new byte[200];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Assert.assertEquals(-1, ringBuffer.peekRecordLength());
+        // 200 bytes record needs 2 bytes varint header
+        Assert.assertTrue(ringBuffer.offerRecord(data, 0, 200));
+        Assert.assertEquals(202, ringBuffer.availableReadLen());
+        Assert.assertFalse(ringBuffer.offerRecord(data, 0, 100));
+        Assert.assertEquals(200, ringBuffer.peekRecordLength());
+
+        final byte[] out = new byte[256];
+        Assert.assertEquals(200, ringBuffer.pollRecord(out));
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals(data[i], out[i]);
+        }
+        Assert.assertEquals(-1, ringBuffer.pollRecord(out));
+
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(ringBuffer.offerRecord(data, i, i));
+        }
+        final int[] counter = new int[1];
+        final int drained = ringBuffer.drainRecords(new byte[32], new RingBuffer.RecordHandler() {
+            @Override
+            public void onRecord(byte[] record, int offset, int len) {
+                Assert.assertEquals(counter[0]++, len);
+                for (int k = 0; k < len; k++) {
+                    Assert.assertEquals((byte) (len + k), record[offset + k]);
+                }
+            }
+        });
+        Assert.assertEquals(20, drained);
+        Assert.assertTrue(ringBuffer.isEmpty());
+        ringBuffer.close();
+    }
+
 }
@@ -3,6 +3,7 @@
 #include "log/logger.h"
 #include "lcu/ring/autocover_buffer.h"
 #include "lcu/common_macro.h"
+#include "ring_buffer_layout.h"
 #include <jni.h>
 
 //=======================================================================
@@ -62,12 +63,48 @@ Java_com_threshold_jni_AutoCoverBufferJni_write(JNIEnv *env, jclass clazz,
     int offset = (int) _offset;
 
     uint32_t len = (uint32_t) _len;
+    // java published the write claim (volatile store) before this call, but the copy below is plain stores,
+    // which may become visible before the claim without a full fence(StoreStore is not enough on
+    // release store alone). readAt readers rely on: claim visible => data not yet overwritten.
+    __atomic_thread_fence(__ATOMIC_SEQ_CST);
     int ret = auto_cover_buf_write(handle, (void *) ((char *) data + offset), len);
 
     (*env)->ReleaseByteArrayElements(env, _data, data, 0);
     return (jint) ret;
 }
 
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_AutoCoverBufferJni_capacity(JNIEnv *env, jclass clazz,
+                                                   jlong _handle) {
+    auto_cover_buf_handle handle = LONG64_TO_PTR(_handle);
+
+    return (jint) handle->capacity;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_AutoCoverBufferJni_readAt(JNIEnv *env, jclass clazz,
+                                                 jlong _handle, jint _pos,
+                                                 jbyteArray _data, jint _offset, jint _len) {
+    auto_cover_buf_handle handle = LONG64_TO_PTR(_handle);
+
+    // no lock and no position check here, caller validates the copied data
+    // by comparing write sequence before and after this call (seqlock style).
+    const ring_buffer_handle ring = handle->ring;
+    const uint32_t len = (uint32_t) _len;
+    // never copy more than the ring holds, a longer len would read past ring->buf
+    if (_len < 0 || len > ring->size) {
+        return -1;
+    }
+    const uint32_t index = (uint32_t) _pos & (ring->size - 1);
+    const uint32_t first_len = len < ring->size - index ? len : ring->size - index;
+    (*env)->SetByteArrayRegion(env, _data, _offset,
+                               (jsize) first_len, (const jbyte *) (ring->buf + index));
+    (*env)->SetByteArrayRegion(env, _data, _offset + (jint) first_len,
+                               (jsize) (len - first_len), (const jbyte *) ring->buf);
+    // data loads must complete before caller re-check the write sequence.
+    __atomic_thread_fence(__ATOMIC_ACQUIRE);
+    return (jint) len;
+}
 
 JNIEXPORT jint JNICALL
 Java_com_threshold_jni_AutoCoverBufferJni_destroy(JNIEnv *env, jclass clazz,
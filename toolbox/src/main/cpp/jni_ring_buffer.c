@@ -3,8 +3,65 @@
 #include "log/logger.h"
 #include "lcu/ring/ringbuffer.h"
 #include "lcu/common_macro.h"
+#include "ring_buffer_layout.h"
 #include <jni.h>
 
+#define RING_REGION_PACK(pos, len) ((jlong) (((uint64_t) (pos) << 32) | (uint32_t) (len)))
+
+// max bytes of varint header for 32bit record len
+#define RECORD_HEADER_MAX_LEN (5)
+// max records per drainRecords call
+#define RECORD_DRAIN_MAX_COUNT (64)
+
+// copy java array to ring memory at position pos directly, no pin/release of whole array.
+static void ring_copy_from_array(JNIEnv *env, ring_buffer_handle handle, uint32_t pos,
+                                 jbyteArray data, jint offset, uint32_t len) {
+    const uint32_t index = pos & (handle->size - 1);
+    const uint32_t first_len = len < handle->size - index ? len : handle->size - index;
+    (*env)->GetByteArrayRegion(env, data, offset,
+                               (jsize) first_len, (jbyte *) (handle->buf + index));
+    (*env)->GetByteArrayRegion(env, data, offset + (jint) first_len,
+                               (jsize) (len - first_len), (jbyte *) handle->buf);
+}
+
+// copy ring memory at position pos to java array directly.
+static void ring_copy_to_array(JNIEnv *env, ring_buffer_handle handle, uint32_t pos,
+                               jbyteArray data, jint offset, uint32_t len) {
+    const uint32_t index = pos & (handle->size - 1);
+    const uint32_t first_len = len < handle->size - index ? len : handle->size - index;
+    (*env)->SetByteArrayRegion(env, data, offset,
+                               (jsize) first_len, (const jbyte *) (handle->buf + index));
+    (*env)->SetByteArrayRegion(env, data, offset + (jint) first_len,
+                               (jsize) (len - first_len), (const jbyte *) handle->buf);
+}
+
+// unsigned LEB128, return header len
+static uint32_t record_header_encode(uint8_t *header, uint32_t record_len) {
+    uint32_t header_len = 0;
+    while (record_len >= 0x80) {
+        header[header_len++] = (uint8_t) (record_len | 0x80);
+        record_len >>= 7;
+    }
+    header[header_len++] = (uint8_t) record_len;
+    return header_len;
+}
+
+// decode record header at position out, return header len, 0 if no complete header.
+static uint32_t record_header_decode(ring_buffer_handle handle, uint32_t in, uint32_t out,
+                                     uint32_t *record_len) {
+    const uint32_t mask = handle->size - 1;
+    uint32_t value = 0;
+    for (uint32_t i = 0; i < RECORD_HEADER_MAX_LEN && out + i != in; ++i) {
+        const uint8_t b = (uint8_t) handle->buf[(out + i) & mask];
+        value |= (uint32_t) (b & 0x7F) << (7 * i);
+        if (!(b & 0x80)) {
+            *record_len = value;
+            return i + 1;
+        }
+    }
+    return 0;
+}
+
 //=======================================================================
 //  Ring buffer start  
 //=======================================================================
@@ -102,6 +159,232 @@ Java_com_threshold_jni_RingBufferJni_write(JNIEnv *env, jclass clazz,
     return (jint) len;
 }
 
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_RingBufferJni_writeAll(JNIEnv *env, jclass clazz,
+                                              jlong _handle, jobjectArray _parts,
+                                              jintArray _offsets, jintArray _lens,
+                                              jint _total_len) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    const uint32_t total_len = (uint32_t) _total_len;
+    const uint32_t out = __atomic_load_n(&handle->out, __ATOMIC_ACQUIRE);
+    if (handle->size - (handle->in - out) < total_len) {
+        // all or nothing: never leave a partial record on ring.
+        return 0;
+    }
+    const jsize count = (*env)->GetArrayLength(env, _parts);
+    jint *offsets = (*env)->GetIntArrayElements(env, _offsets, NULL);
+    jint *lens = (*env)->GetIntArrayElements(env, _lens, NULL);
+    uint32_t in = handle->in;
+    for (jsize i = 0; i < count; ++i) {
+        jbyteArray part = (jbyteArray) (*env)->GetObjectArrayElement(env, _parts, i);
+        ring_copy_from_array(env, handle, in, part, offsets[i], (uint32_t) lens[i]);
+        (*env)->DeleteLocalRef(env, part);
+        in += (uint32_t) lens[i];
+    }
+    (*env)->ReleaseIntArrayElements(env, _lens, lens, JNI_ABORT);
+    (*env)->ReleaseIntArrayElements(env, _offsets, offsets, JNI_ABORT);
+    // publish all parts at once, consumer never sees part of the record.
+    __atomic_store_n(&handle->in, in, __ATOMIC_RELEASE);
+    return (jint) total_len;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_RingBufferJni_peekDirect(JNIEnv *env, jclass clazz,
+                                                jlong _handle,
+                                                jobject _data, jint _offset, jint _len) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    char *data = (char *) (*env)->GetDirectBufferAddress(env, _data);
+    if (NULL == data) {
+        return -1;
+    }
+    uint32_t len = (uint32_t) _len;
+    len = RingBuffer_peek(handle, (void *) (data + _offset), len);
+    return (jint) len;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_RingBufferJni_readDirect(JNIEnv *env, jclass clazz,
+                                                jlong _handle,
+                                                jobject _data, jint _offset, jint _len) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    char *data = (char *) (*env)->GetDirectBufferAddress(env, _data);
+    if (NULL == data) {
+        return -1;
+    }
+    uint32_t len = (uint32_t) _len;
+    len = RingBuffer_read(handle, (void *) (data + _offset), len);
+    return (jint) len;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_RingBufferJni_writeDirect(JNIEnv *env, jclass clazz,
+                                                 jlong _handle,
+                                                 jobject _data, jint _offset, jint _len) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    const char *data = (const char *) (*env)->GetDirectBufferAddress(env, _data);
+    if (NULL == data) {
+        return -1;
+    }
+    uint32_t len = (uint32_t) _len;
+    len = RingBuffer_write(handle, (const void *) (data + _offset), len);
+    return (jint) len;
+}
+
+JNIEXPORT jobject JNICALL
+Java_com_threshold_jni_RingBufferJni_memory(JNIEnv *env, jclass clazz,
+                                            jlong _handle) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    return (*env)->NewDirectByteBuffer(env, (void *) handle->buf, (jlong) handle->size);
+}
+
+JNIEXPORT jlong JNICALL
+Java_com_threshold_jni_RingBufferJni_writeRegion(JNIEnv *env, jclass clazz,
+                                                 jlong _handle) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    const uint32_t out = __atomic_load_n(&handle->out, __ATOMIC_ACQUIRE);
+    const uint32_t in = handle->in;
+    return RING_REGION_PACK(in & (handle->size - 1), handle->size - (in - out));
+}
+
+JNIEXPORT jlong JNICALL
+Java_com_threshold_jni_RingBufferJni_readRegion(JNIEnv *env, jclass clazz,
+                                                jlong _handle) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    const uint32_t in = __atomic_load_n(&handle->in, __ATOMIC_ACQUIRE);
+    const uint32_t out = handle->out;
+    return RING_REGION_PACK(out & (handle->size - 1), in - out);
+}
+
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_RingBufferJni_commitWrite(JNIEnv *env, jclass clazz,
+                                                 jlong _handle, jint _len) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    uint32_t len = (uint32_t) _len;
+    const uint32_t available = RingBuffer_available_write(handle);
+    if (len > available) {
+        len = available;
+    }
+    // make sure data filled by producer is visible before we move write position.
+    __atomic_store_n(&handle->in, handle->in + len, __ATOMIC_RELEASE);
+    return (jint) len;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_RingBufferJni_releaseRead(JNIEnv *env, jclass clazz,
+                                                 jlong _handle, jint _len) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    uint32_t len = (uint32_t) _len;
+    const uint32_t available = RingBuffer_available_read(handle);
+    if (len > available) {
+        len = available;
+    }
+    // make sure consumer finished reading before producer could overwrite it.
+    __atomic_store_n(&handle->out, handle->out + len, __ATOMIC_RELEASE);
+    return (jint) len;
+}
+
+JNIEXPORT jboolean JNICALL
+Java_com_threshold_jni_RingBufferJni_offerRecord(JNIEnv *env, jclass clazz,
+                                                 jlong _handle,
+                                                 jbyteArray _data, jint _offset, jint _len) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    const uint32_t len = (uint32_t) _len;
+    uint8_t header[RECORD_HEADER_MAX_LEN];
+    const uint32_t header_len = record_header_encode(header, len);
+    const uint32_t out = __atomic_load_n(&handle->out, __ATOMIC_ACQUIRE);
+    const uint32_t in = handle->in;
+    if ((uint64_t) handle->size - (in - out) < (uint64_t) header_len + len) {
+        return JNI_FALSE;
+    }
+    const uint32_t mask = handle->size - 1;
+    for (uint32_t i = 0; i < header_len; ++i) {
+        handle->buf[(in + i) & mask] = (char) header[i];
+    }
+    ring_copy_from_array(env, handle, in + header_len, _data, _offset, len);
+    // publish header and payload together.
+    __atomic_store_n(&handle->in, in + header_len + len, __ATOMIC_RELEASE);
+    return JNI_TRUE;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_RingBufferJni_peekRecordLength(JNIEnv *env, jclass clazz,
+                                                      jlong _handle) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    const uint32_t in = __atomic_load_n(&handle->in, __ATOMIC_ACQUIRE);
+    uint32_t record_len = 0;
+    if (0 == record_header_decode(handle, in, handle->out, &record_len)) {
+        return -1;
+    }
+    return (jint) record_len;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_RingBufferJni_pollRecord(JNIEnv *env, jclass clazz,
+                                                jlong _handle,
+                                                jbyteArray _buffer, jint _offset, jint _len) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    const uint32_t in = __atomic_load_n(&handle->in, __ATOMIC_ACQUIRE);
+    const uint32_t out = handle->out;
+    uint32_t record_len = 0;
+    const uint32_t header_len = record_header_decode(handle, in, out, &record_len);
+    if (0 == header_len) {
+        return -1;
+    }
+    if (record_len > (uint32_t) _len) {
+        // keep the record on ring, caller should retry with bigger buffer.
+        return -2;
+    }
+    ring_copy_to_array(env, handle, out + header_len, _buffer, _offset, record_len);
+    __atomic_store_n(&handle->out, out + header_len + record_len, __ATOMIC_RELEASE);
+    return (jint) record_len;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_threshold_jni_RingBufferJni_drainRecords(JNIEnv *env, jclass clazz,
+                                                  jlong _handle,
+                                                  jbyteArray _scratch, jintArray _lens) {
+    ring_buffer_handle handle = LONG64_TO_PTR(_handle);
+
+    const uint32_t in = __atomic_load_n(&handle->in, __ATOMIC_ACQUIRE);
+    const uint32_t scratch_len = (uint32_t) (*env)->GetArrayLength(env, _scratch);
+    jsize max_count = (*env)->GetArrayLength(env, _lens);
+    if (max_count > RECORD_DRAIN_MAX_COUNT) {
+        max_count = RECORD_DRAIN_MAX_COUNT;
+    }
+    jint lens[RECORD_DRAIN_MAX_COUNT];
+    jsize count = 0;
+    uint32_t out = handle->out;
+    uint32_t scratch_used = 0;
+    while (count < max_count) {
+        uint32_t record_len = 0;
+        const uint32_t header_len = record_header_decode(handle, in, out, &record_len);
+        if (0 == header_len || record_len > scratch_len - scratch_used) {
+            break;
+        }
+        ring_copy_to_array(env, handle, out + header_len, _scratch, (jint) scratch_used, record_len);
+        scratch_used += record_len;
+        out += header_len + record_len;
+        lens[count++] = (jint) record_len;
+    }
+    if (count > 0) {
+        (*env)->SetIntArrayRegion(env, _lens, 0, count, lens);
+        __atomic_store_n(&handle->out, out, __ATOMIC_RELEASE);
+    }
+    return (jint) count;
+}
+
 JNIEXPORT jint JNICALL
 Java_com_threshold_jni_RingBufferJni_clear(JNIEnv *env, jclass clazz,
                                            jlong _handle) {
@@ -0,0 +1,33 @@
+#pragma once
+#ifndef MYTOOLBOX_RING_BUFFER_LAYOUT_H
+#define MYTOOLBOX_RING_BUFFER_LAYOUT_H
+
+#include <stdbool.h>
+#include <stdint.h>
+#include "lcu/ring/ringbuffer.h"
+#include "lcu/ring/autocover_buffer.h"
+
+/**
+ * layout of lcu ring buffer (libcutils src/ring/ringbuffer.c).
+ * lcu is linked as prebuilt static lib, we mirror it here for zero-copy region access,
+ * keep it in sync if you upgrade lcu.
+ */
+struct __ring_buffer_t {
+    bool is_buf_alloc_by_ring;
+    uint32_t in;
+    uint32_t out;
+    uint32_t size;
+    char *buf;
+};
+
+/**
+ * layout of lcu auto cover buffer (libcutils src/ring/autocover_buffer.c).
+ * it's data lives on the ring, byte of write position pos is at ring->buf[pos & (size - 1)].
+ */
+struct _auto_cover_buf {
+    ring_buffer_handle ring;
+    uint32_t capacity;
+    auto_cover_buf_lock_t lock;
+};
+
+#endif //MYTOOLBOX_RING_BUFFER_LAYOUT_H
@@ -51,6 +51,28 @@ public class AutoCoverBufferJni {
      */
     public static native int write(long handle, byte[] data, int offset, int len);
 
+    /**
+     * real capacity of auto cover buffer
+     *
+     * @param handle handle
+     * @return capacity in bytes
+     */
+    public static native int capacity(long handle);
+
+    /**
+     * copy data at write position pos without lock and without any check.
+     * <p> data may be covered by writer while copying,
+     * caller must validate it with the write sequence after this call. </p>
+     *
+     * @param handle handle
+     * @param pos    write position of first byte (low 32bit)
+     * @param data   copy bytes to data
+     * @param offset data offset
+     * @param len    how long you want to copy to data, should not exceed capacity
+     * @return len
+     */
+    public static native int readAt(long handle, int pos, byte[] data, int offset, int len);
+
     /**
      * destroy the auto cover buffer
      *
@@ -1,5 +1,7 @@
 package com.threshold.jni;
 
+import java.nio.ByteBuffer;
+
 public class RingBufferJni {
 
     static {
@@ -78,6 +80,139 @@ public class RingBufferJni {
      */
     public static native int write(long handle, byte[] data, int offset, int len);
 
+    /**
+     * gather write all parts to ring buffer as one record, all or nothing.
+     * <p> parts are published together, so consumer never sees part of them. </p>
+     *
+     * @param handle   handle
+     * @param parts    data parts will copied to ring buffer in order
+     * @param offsets  offset of each part
+     * @param lens     len of each part
+     * @param totalLen sum of lens
+     * @return totalLen if written, 0 if ring has not enough space
+     */
+    public static native int writeAll(long handle, byte[][] parts, int[] offsets, int[] lens, int totalLen);
+
+    /**
+     * peek data from ring buffer to a direct ByteBuffer, no java array copy involved.
+     * just like read, but do not remove it from queue
+     *
+     * @param handle handle
+     * @param data   direct ByteBuffer to store peeked bytes
+     * @param offset absolute offset of data
+     * @param len    how long you want to copy to data
+     * @return real peek data len, negative number means data is not a direct buffer
+     */
+    public static native int peekDirect(long handle, ByteBuffer data, int offset, int len);
+
+    /**
+     * read specified len byte from ring buffer and copy it to direct ByteBuffer from offset
+     *
+     * @param handle handle
+     * @param data   direct ByteBuffer to store read out bytes
+     * @param offset absolute offset of data
+     * @param len    how long you want to copy to data
+     * @return real read len, negative number means data is not a direct buffer
+     */
+    public static native int readDirect(long handle, ByteBuffer data, int offset, int len);
+
+    /**
+     * write specified len byte from direct ByteBuffer's offset to ring buffer
+     *
+     * @param handle handle
+     * @param data   direct ByteBuffer, will copied to ring buffer
+     * @param offset absolute offset of data
+     * @param len    how long you want write to ring buffer
+     * @return real write len, negative number means data is not a direct buffer
+     */
+    public static native int writeDirect(long handle, ByteBuffer data, int offset, int len);
+
+    /**
+     * wrap whole ring memory as a direct ByteBuffer.
+     * <p>the returned buffer is invalid after {@link #destroy(long[])}</p>
+     *
+     * @param handle handle
+     * @return direct ByteBuffer which capacity is the real ring size
+     */
+    public static native ByteBuffer memory(long handle);
+
+    /**
+     * current free region of ring.
+     *
+     * @param handle handle
+     * @return high 32bit is write offset in ring memory, low 32bit is free space len
+     */
+    public static native long writeRegion(long handle);
+
+    /**
+     * current data region of ring.
+     *
+     * @param handle handle
+     * @return high 32bit is read offset in ring memory, low 32bit is available data len
+     */
+    public static native long readRegion(long handle);
+
+    /**
+     * commit data which already filled in ring memory, make it visible to consumer.
+     * no copy happens here, just move the write position.
+     *
+     * @param handle handle
+     * @param len    how long you filled
+     * @return real committed len
+     */
+    public static native int commitWrite(long handle, int len);
+
+    /**
+     * release data which already consumed from ring memory, make the space available to producer.
+     * just like discard, but with the memory order guarantee of zero-copy read.
+     *
+     * @param handle handle
+     * @param len    how long you consumed
+     * @return real released len
+     */
+    public static native int releaseRead(long handle, int len);
+
+    /**
+     * write record(varint len header + data) to ring buffer, all or nothing.
+     *
+     * @param handle handle
+     * @param data   record data
+     * @param offset data offset
+     * @param len    record len
+     * @return true if written, false if ring has not enough space
+     */
+    public static native boolean offerRecord(long handle, byte[] data, int offset, int len);
+
+    /**
+     * get len of next record on ring buffer, record is not removed.
+     *
+     * @param handle handle
+     * @return record len, -1 if no record
+     */
+    public static native int peekRecordLength(long handle);
+
+    /**
+     * read next record from ring buffer.
+     *
+     * @param handle handle
+     * @param buffer store record data
+     * @param offset buffer offset
+     * @param len    max len of buffer could store
+     * @return record len, -1 if no record, -2 if buffer too small (record is kept on ring)
+     */
+    public static native int pollRecord(long handle, byte[] buffer, int offset, int len);
+
+    /**
+     * read as many records as could fit in scratch in one call.
+     * records are stored in scratch one after another.
+     *
+     * @param handle  handle
+     * @param scratch store records data
+     * @param lens    store len of each record, it's length is the max record count(at most 64)
+     * @return record count
+     */
+    public static native int drainRecords(long handle, byte[] scratch, int[] lens);
+
     /**
      * clear all data, NOT THREAD SAFE
      * call this method you should ensure not in read/write state
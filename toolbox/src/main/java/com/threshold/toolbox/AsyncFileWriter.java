@@ -1,28 +1,114 @@
 package com.threshold.toolbox;
 
-import androidx.annotation.NonNull;
-import android.os.*;
-import android.util.Log;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class AsyncFileWriter extends OutputStream {
 
     private static final String TAG = "AsyncFileWriter";
     private static final int MIN_BUFFER_SIZE = 4096;
     private static final int DEFAULT_CHUNK_SIZE = 8192;
+    // worker wakes at latest this long after data written, if high-water mark not reached
+    private static final long DEFAULT_MAX_LATENCY_MS = 100;
+    // blocked write wakes up at least this often to check whether writer closed by error
+    private static final long WRITE_WAIT_TIMEOUT_MS = 200;
 
     public interface ErrorCallback {
         void onError(String operation, Exception ex);
     }
 
-    private final RingBuffer mRingBuf;
+    /**
+     * how worker moves data from ring to file.
+     */
+    public enum Backend {
+        /**
+         * ring -> chunk buffer -> BufferedOutputStream -> file, see {@link FileWriter}.
+         */
+        STREAM,
+        /**
+         * gathering {@link java.nio.channels.FileChannel} write straight from ring memory,
+         * see {@link FileChannelWriter}. zero java copy with {@link RingBuffer} (direct memory),
+         * suits for multi-MB/s data such as PCM dump.
+         */
+        FILE_CHANNEL
+    }
+
+    /**
+     * what write does when ring is full, see {@link #setOverflowPolicy(OverflowPolicy, long, int)}.
+     * <p> except BLOCK, write never waits for disk, suits for real-time producer such as audio thread. </p>
+     */
+    public enum OverflowPolicy {
+        /**
+         * wait worker to free space, until block timeout. the default
+         */
+        BLOCK,
+        /**
+         * drop the data being written
+         */
+        DROP_NEWEST,
+        /**
+         * drop oldest data in ring to make room, like {@link AutoCoverBuffer}.
+         * worker copies data out of ring (no zero-copy) so producer can take the ring over quickly
+         */
+        DROP_OLDEST,
+        /**
+         * put data to a secondary heap buffer, worker writes it after ring.
+         * drop the data being written if spill buffer full too
+         */
+        SPILL
+    }
+
+    /**
+     * when data is forced to storage device, see {@link #setDurability(Durability, long)}.
+     */
+    public enum Durability {
+        /**
+         * only {@link #flushAndSync()} forces data. the default
+         */
+        NONE,
+        /**
+         * worker forces data every period if anything written, {@link #flushAndSync()} waits for it
+         */
+        PERIODIC,
+        /**
+         * {@link #flushAndSync()} callers within one period are batched onto one force
+         */
+        GROUP_COMMIT
+    }
+
+    private final ByteRing mRingBuf;
+    private final int mRingCapacity;
     private final FileWriterWorker mFileWriterWorker;
-    private final byte[] mSingleByteBuf = new byte[1];
+    // max len of one blocking write, see write(byte[], int, int)
+    private final int mWriteSliceSize;
     private volatile boolean mClosed;
     private ErrorCallback mErrorCallback;
+    private volatile OverflowPolicy mOverflowPolicy = OverflowPolicy.BLOCK;
+    private volatile long mBlockTimeoutMs = -1;
+    // consumer side lock of ring, DROP_OLDEST producer discards data under it
+    private final ReentrantLock mReadLock = new ReentrantLock();
+    // SPILL buffer, guarded by itself. once data spilled, all writes go to it until worker drained it,
+    // so data of one producer keeps in order.
+    private volatile ByteRing mSpillBuf;
+    private volatile boolean mSpilling;
+    private final AtomicLong mDroppedBytes = new AtomicLong();
+    private final AtomicLong mSpilledBytes = new AtomicLong();
+    private volatile RollingPolicy mRollingPolicy;
+    private volatile Durability mDurability = Durability.NONE;
+    private volatile long mDurabilityPeriodMs;
 
     public AsyncFileWriter(final String path, final int bufferSize) {
         this(new File(path), bufferSize, null);
@@ -42,13 +128,206 @@ public class AsyncFileWriter extends OutputStream {
         }
         mErrorCallback = callback;
         mRingBuf = new RingBuffer(bufferSize);
-        mFileWriterWorker = new FileWriterWorker(file, DEFAULT_CHUNK_SIZE, mRingBuf);
+        mRingCapacity = mRingBuf.availableWriteLen();
+        mWriteSliceSize = Math.max(1, mRingBuf.availableWriteLen() / 2);
+        mFileWriterWorker = new FileWriterWorker(file, DEFAULT_CHUNK_SIZE, mRingBuf, Backend.STREAM,
+                Math.max(1, mWriteSliceSize / 2), DEFAULT_MAX_LATENCY_MS, createDefaultWorker());
+    }
+
+    /**
+     * write through the ring you supplied, the ring is owned(closed) by this writer.
+     * <p> pass {@link MpscByteRing} if multiple threads write to this writer concurrently,
+     * each write call is kept as a whole record, so no external lock is needed.
+     * in that case one write len should not exceed half of the ring capacity. </p>
+     *
+     * @param file     the file to write
+     * @param ringBuf  the ring buffer between writer threads and worker thread
+     * @param callback error callback, nullable
+     */
+    public AsyncFileWriter(final File file, final ByteRing ringBuf, final ErrorCallback callback) {
+        this(file, ringBuf, callback, Backend.STREAM);
+    }
+
+    /**
+     * write through the ring you supplied with chosen backend, the ring is owned(closed) by this writer.
+     *
+     * @param file     the file to write
+     * @param ringBuf  the ring buffer between writer threads and worker thread
+     * @param callback error callback, nullable
+     * @param backend  how worker writes ring data to file
+     * @see #AsyncFileWriter(File, ByteRing, ErrorCallback)
+     */
+    public AsyncFileWriter(final File file, final ByteRing ringBuf, final ErrorCallback callback,
+                           final Backend backend) {
+        this(file, ringBuf, callback, backend, 0, DEFAULT_MAX_LATENCY_MS);
+    }
+
+    /**
+     * write through the ring you supplied with chosen backend and wake thresholds.
+     * <p> worker not wakes on every write, it wakes once readable data reaches highWaterMark,
+     * or maxLatencyMs after data written, whichever comes first. then it drains all readable data,
+     * so small writes are coalesced to big file writes. </p>
+     *
+     * @param file          the file to write
+     * @param ringBuf       the ring buffer between writer threads and worker thread
+     * @param callback      error callback, nullable
+     * @param backend       how worker writes ring data to file
+     * @param highWaterMark readable len in bytes to wake worker at once, in [1, ring capacity].
+     *                      0 for default: a quarter of ring capacity
+     * @param maxLatencyMs  max time in milliseconds data stays in ring before worker wakes,
+     *                      default is 100ms. 0 to wake on every write
+     * @see #AsyncFileWriter(File, ByteRing, ErrorCallback)
+     */
+    public AsyncFileWriter(final File file, final ByteRing ringBuf, final ErrorCallback callback,
+                           final Backend backend, final int highWaterMark, final long maxLatencyMs) {
+        this(file, ringBuf, callback, backend, highWaterMark, maxLatencyMs, null);
+    }
+
+    /**
+     * write through the ring you supplied, on the worker you supplied.
+     * <p> with {@link ExecutorSerialWorker} and a pure java ring such as {@link SpscByteRing},
+     * this writer works on desktop/server JVM as well. </p>
+     *
+     * @param file          the file to write
+     * @param ringBuf       the ring buffer between writer threads and worker thread
+     * @param callback      error callback, nullable
+     * @param backend       how worker writes ring data to file
+     * @param highWaterMark readable len in bytes to wake worker at once, 0 for default
+     * @param maxLatencyMs  max time in milliseconds data stays in ring before worker wakes
+     * @param worker        the worker thread writes file, owned(quit) by this writer. null for default:
+     *                      {@link HandlerSerialWorker} on Android, {@link ExecutorSerialWorker} on JVM
+     * @see #AsyncFileWriter(File, ByteRing, ErrorCallback, Backend, int, long)
+     */
+    public AsyncFileWriter(final File file, final ByteRing ringBuf, final ErrorCallback callback,
+                           final Backend backend, final int highWaterMark, final long maxLatencyMs,
+                           final SerialWorker worker) {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        if (ringBuf == null) {
+            throw new IllegalArgumentException("RingBuffer cannot be null");
+        }
+        if (backend == null) {
+            throw new IllegalArgumentException("Backend cannot be null");
+        }
+        if (highWaterMark < 0 || highWaterMark > ringBuf.availableWriteLen()) {
+            throw new IllegalArgumentException("Illegal highWaterMark: " + highWaterMark);
+        }
+        if (maxLatencyMs < 0) {
+            throw new IllegalArgumentException("Illegal maxLatencyMs: " + maxLatencyMs);
+        }
+        mErrorCallback = callback;
+        mRingBuf = ringBuf;
+        mRingCapacity = mRingBuf.availableWriteLen();
+        mWriteSliceSize = Math.max(1, mRingBuf.availableWriteLen() / 2);
+        mFileWriterWorker = new FileWriterWorker(file, DEFAULT_CHUNK_SIZE, mRingBuf, backend,
+                highWaterMark > 0 ? highWaterMark : Math.max(1, mWriteSliceSize / 2), maxLatencyMs,
+                null != worker ? worker : createDefaultWorker());
+    }
+
+    private static SerialWorker createDefaultWorker() {
+        if (PlatformLog.IS_ANDROID) {
+            return new HandlerSerialWorker(TAG);
+        }
+        return new ExecutorSerialWorker(TAG);
     }
 
     public void setErrorCallback(ErrorCallback callback) {
         mErrorCallback = callback;
     }
 
+    /**
+     * set what write does when ring is full, with default block timeout(forever)
+     * and spill capacity(4 times of ring capacity).
+     *
+     * @param policy overflow policy
+     * @see #setOverflowPolicy(OverflowPolicy, long, int)
+     */
+    public void setOverflowPolicy(final OverflowPolicy policy) {
+        setOverflowPolicy(policy, -1, mRingCapacity * 4);
+    }
+
+    /**
+     * set what write does when ring is full.
+     * <p> dropped data is counted, see {@link #getDroppedBytes()}. </p>
+     *
+     * @param policy         overflow policy
+     * @param blockTimeoutMs max wait time of one write for {@link OverflowPolicy#BLOCK}, negative for forever.
+     *                       write throws InterruptedIOException on timeout, the rest data is dropped
+     * @param spillCapacity  spill buffer capacity in bytes for {@link OverflowPolicy#SPILL},
+     *                       the buffer is allocated here on first set, and can't be resized later
+     */
+    public void setOverflowPolicy(final OverflowPolicy policy, final long blockTimeoutMs,
+                                  final int spillCapacity) {
+        if (policy == null) {
+            throw new IllegalArgumentException("OverflowPolicy cannot be null");
+        }
+        if (OverflowPolicy.SPILL == policy && null == mSpillBuf) {
+            if (spillCapacity < 1) {
+                throw new IllegalArgumentException("Illegal spillCapacity: " + spillCapacity);
+            }
+            mSpillBuf = new SpscByteRing(spillCapacity);
+        }
+        mBlockTimeoutMs = blockTimeoutMs;
+        mOverflowPolicy = policy;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return mOverflowPolicy;
+    }
+
+    /**
+     * roll the file by size or time, see {@link RollingPolicy}.
+     * <p> roll, compress and retention are done on worker threads, producer never waits for them. </p>
+     *
+     * @param policy rolling policy, null for no roll(the default)
+     */
+    public void setRollingPolicy(final RollingPolicy policy) {
+        mRollingPolicy = policy;
+    }
+
+    public RollingPolicy getRollingPolicy() {
+        return mRollingPolicy;
+    }
+
+    /**
+     * set durability mode, sync(fsync) per write kills throughput, so syncs are batched.
+     *
+     * @param durability durability mode
+     * @param periodMs   sync period of {@link Durability#PERIODIC},
+     *                   or max wait time to batch callers of {@link Durability#GROUP_COMMIT}
+     */
+    public void setDurability(final Durability durability, final long periodMs) {
+        if (durability == null) {
+            throw new IllegalArgumentException("Durability cannot be null");
+        }
+        if (periodMs < 0 || (Durability.PERIODIC == durability && periodMs == 0)) {
+            throw new IllegalArgumentException("Illegal periodMs: " + periodMs);
+        }
+        checkCloseStatus();
+        mDurabilityPeriodMs = periodMs;
+        mDurability = durability;
+        mFileWriterWorker.onDurabilityChanged();
+    }
+
+    public Durability getDurability() {
+        return mDurability;
+    }
+
+    /**
+     * @return total bytes dropped by overflow policy
+     */
+    public long getDroppedBytes() {
+        return mDroppedBytes.get();
+    }
+
+    /**
+     * @return total bytes put to spill buffer
+     */
+    public long getSpilledBytes() {
+        return mSpilledBytes.get();
+    }
+
     private void checkCloseStatus() {
         if (mClosed) {
             throw new IllegalStateException("AsyncFileWriter is closed");
@@ -58,8 +337,8 @@ public class AsyncFileWriter extends OutputStream {
     @Override
     public void write(final int b) throws IOException {
         checkCloseStatus();
-        mSingleByteBuf[0] = (byte) b;
-        write(mSingleByteBuf, 0, 1);
+        // not share a member buffer here, writer may be called from multiple threads
+        write(new byte[]{(byte) b}, 0, 1);
     }
 
     @Override
@@ -71,29 +350,124 @@ public class AsyncFileWriter extends OutputStream {
         if (offset < 0 || len < 0 || offset + len > data.length) {
             throw new IndexOutOfBoundsException("Invalid offset/length");
         }
+        if (len == 0) {
+            return;
+        }
+        if (mSpilling) {
+            // keep order with data already spilled
+            spill(data, offset, len);
+            return;
+        }
+        final OverflowPolicy policy = mOverflowPolicy;
+        if (OverflowPolicy.BLOCK == policy) {
+            writeBlocking(data, offset, len);
+            return;
+        }
+        // one write is kept as a whole if possible, a log line is not cut
+        if (len <= mRingBuf.availableWriteLen() && mRingBuf.write(data, offset, len) == len) {
+            mFileWriterWorker.onDataWritten();
+            return;
+        }
+        mFileWriterWorker.wakeNow();
+        switch (policy) {
+            case DROP_OLDEST:
+                overwrite(data, offset, len);
+                break;
+            case SPILL:
+                spill(data, offset, len);
+                break;
+            default:
+                mDroppedBytes.addAndGet(len);
+                break;
+        }
+    }
+
+    private void overwrite(final byte[] data, final int offset, final int len) {
+        // never wait for worker, it only holds the lock while copying data out
+        if (!mReadLock.tryLock()) {
+            mDroppedBytes.addAndGet(len);
+            return;
+        }
+        final int written;
+        final int toWrite = Math.min(len, mRingCapacity);
+        try {
+            final int need = toWrite - mRingBuf.availableWriteLen();
+            if (need > 0) {
+                mDroppedBytes.addAndGet(mRingBuf.discard(need));
+            }
+            written = mRingBuf.write(data, offset + len - toWrite, toWrite);
+        } finally {
+            mReadLock.unlock();
+        }
+        mDroppedBytes.addAndGet(len - written);
+        if (written > 0) {
+            mFileWriterWorker.onDataWritten();
+        }
+    }
+
+    private void spill(final byte[] data, final int offset, final int len) {
+        final ByteRing spillBuf = mSpillBuf;
+        if (null == spillBuf) {
+            mDroppedBytes.addAndGet(len);
+            return;
+        }
+        boolean spilled = false;
+        synchronized (spillBuf) {
+            if (len <= spillBuf.availableWriteLen()) {
+                spillBuf.write(data, offset, len);
+                mSpilling = true;
+                spilled = true;
+            }
+        }
+        if (spilled) {
+            mSpilledBytes.addAndGet(len);
+        } else {
+            mDroppedBytes.addAndGet(len);
+        }
+        mFileWriterWorker.wakeNow();
+    }
 
+    private void writeBlocking(final byte[] data, final int offset, final int len) throws IOException {
+        final long timeoutMs = mBlockTimeoutMs;
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMs));
         int remaining = len;
         int currentOffset = offset;
 
         while (remaining > 0) {
-            final int writable = Math.min(mRingBuf.availableWriteLen(), remaining);
-            if (writable > 0) {
-                int written = mRingBuf.write(data, currentOffset, writable);
-                if (written != writable) {
-                    handleWorkerError("RingBuffer write mismatch",
-                            new IOException("RingBuffer write error"));
-                }
-                mFileWriterWorker.scheduleWrite();
+            // 每次阻塞写入不超过环形缓冲区的一半: 缓冲区满时至少一半数据已调度给worker, 不会互相等待
+            final int slice = Math.min(remaining, mWriteSliceSize);
+            if (slice > mRingBuf.availableWriteLen()) {
+                // going to block, worker should not wait for max latency
+                mFileWriterWorker.wakeNow();
+            }
+            long waitMs = WRITE_WAIT_TIMEOUT_MS;
+            if (timeoutMs >= 0) {
+                final long remainNanos = deadline - System.nanoTime();
+                if (remainNanos <= 0 && slice > mRingBuf.availableWriteLen()) {
+                    mDroppedBytes.addAndGet(remaining);
+                    final InterruptedIOException ex = new InterruptedIOException("Write timeout");
+                    ex.bytesTransferred = len - remaining;
+                    throw ex;
+                }
+                waitMs = Math.min(waitMs, TimeUnit.NANOSECONDS.toMillis(Math.max(0, remainNanos)));
+            }
+            final int written;
+            try {
+                written = mRingBuf.writeFully(data, currentOffset, slice, waitMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                handleWorkerError("Write interrupted", e);
+                final InterruptedIOException ex = new InterruptedIOException("Write interrupted");
+                ex.bytesTransferred = len - remaining;
+                throw ex;
+            }
+            if (written > 0) {
+                mFileWriterWorker.onDataWritten();
                 currentOffset += written;
                 remaining -= written;
-            } else {
-                // 缓冲区满时等待并重试
-                try {
-                    Thread.sleep(1);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    handleWorkerError("Write interrupted", e);
-                }
+            }
+            if (remaining > 0 && mClosed) {
+                throw new IOException("AsyncFileWriter is closed");
             }
         }
     }
@@ -109,129 +483,498 @@ public class AsyncFileWriter extends OutputStream {
         mFileWriterWorker.sendFlushMsg();
     }
 
+    /**
+     * write all data written before to file and force it to storage device.
+     * <p> not blocks, callers are batched onto one force, see {@link Durability}. </p>
+     *
+     * @return future completes when data is durable, or fails with IOException
+     */
+    public Future<Void> flushAndSync() {
+        checkCloseStatus();
+        final SyncFuture future = new SyncFuture();
+        mFileWriterWorker.requestSync(future);
+        return future;
+    }
+
+    private static final class SyncFuture extends FutureTask<Void> {
+        private static final Runnable NO_OP = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        SyncFuture() {
+            super(NO_OP, null);
+        }
+
+        void complete() {
+            set(null);
+        }
+
+        void fail(Throwable t) {
+            setException(t);
+        }
+    }
+
     @Override
     public void close() {
         if (mClosed) {
             return;
         }
         mClosed = true;
-        mFileWriterWorker.sendCloseMsg();
+        // null if failed in constructor
+        if (null != mFileWriterWorker) {
+            mFileWriterWorker.sendCloseMsg();
+        }
     }
 
     private void handleWorkerError(String message, Exception ex) {
-        Log.e(TAG, message, ex);
+        PlatformLog.e(TAG, message, ex);
         if (mErrorCallback != null) {
             mErrorCallback.onError(message, ex);
         }
         close(); // 发生错误时自动关闭
     }
 
-    private class FileWriterWorker implements Handler.Callback {
-        private static final int MSG_WHAT_WRITE = 1;
-        private static final int MSG_WHAT_FLUSH = 2;
-        private static final int MSG_WHAT_CLOSE = 3;
-
+    private class FileWriterWorker {
+        private static final int TASK_WRITE = 1;
+        private static final int TASK_FLUSH = 2;
+        private static final int TASK_CLOSE = 3;
+        private static final int TASK_SYNC = 4;
+        // pending wake of worker, at most one write task is posted per state
+        private static final int WAKE_IDLE = 0;
+        private static final int WAKE_DELAYED = 1;
+        private static final int WAKE_NOW = 2;
+
+        private final File mFile;
+        private final Backend mBackend;
+        private final int mChunkSize;
+        // one of mFileWriter and mChannelWriter is used, depends on backend
         private FileWriter mFileWriter;
+        private FileChannelWriter mChannelWriter;
+        // rolling state, worker thread only
+        private RollingPolicy mAppliedRollingPolicy;
+        private long mSegmentSize;
+        private long mSegmentRollTimeMs;
+        private int mSegmentIndex = -1;
+        // compress and retention of rolled segments, created on first roll
+        private SerialWorker mHousekeeper;
+        // flushAndSync callers wait for next sync, guarded by itself
+        private final List<SyncFuture> mSyncWaiters = new ArrayList<>();
+        private boolean mSyncClosed;
+        private final AtomicBoolean mSyncScheduled = new AtomicBoolean();
+        // changes on each setDurability, stops former periodic sync
+        private final AtomicInteger mDurabilityGeneration = new AtomicInteger();
+        // worker thread only, bytes written to file after last sync
+        private long mUnsyncedBytes;
         private volatile boolean mWorkerClosed;
-        private final byte[] mChunkBuffer;
-        private final RingBuffer mRingBuf;
-        private final Handler mHandler;
-        private final HandlerThread mHandlerThread;
-
-        FileWriterWorker(File file, int chunkSize, RingBuffer ringBuf) {
-            mHandlerThread = new HandlerThread("AsyncFileWriter");
-            mHandlerThread.start();
+        // worker thread only, tasks run after close do nothing
+        private boolean mFinished;
+        private final AtomicInteger mWakeState = new AtomicInteger(WAKE_IDLE);
+        private final int mHighWaterMark;
+        private final long mMaxLatencyMs;
+        // grows on demand up to mMaxChunkSize(ring capacity), so one drain is one file write
+        private byte[] mChunkBuffer;
+        private final int mMaxChunkSize;
+        private final ByteRing mRingBuf;
+        // wraps mChunkBuffer for channel backend if data copied out of ring
+        private ByteBuffer mChunkByteBuffer;
+        private final SerialWorker mWorker;
+        private final Runnable mWriteTask = new Runnable() {
+            @Override
+            public void run() {
+                runTask(TASK_WRITE);
+            }
+        };
+        private final Runnable mFlushTask = new Runnable() {
+            @Override
+            public void run() {
+                runTask(TASK_FLUSH);
+            }
+        };
+        private final Runnable mCloseTask = new Runnable() {
+            @Override
+            public void run() {
+                runTask(TASK_CLOSE);
+            }
+        };
+        private final Runnable mSyncTask = new Runnable() {
+            @Override
+            public void run() {
+                runTask(TASK_SYNC);
+            }
+        };
+
+        FileWriterWorker(File file, int chunkSize, ByteRing ringBuf, Backend backend,
+                         int highWaterMark, long maxLatencyMs, SerialWorker worker) {
+            mWorker = worker;
+            mFile = file;
+            mBackend = backend;
+            mChunkSize = chunkSize;
             try {
-                mFileWriter = new FileWriter(file, chunkSize);
+                openWriter();
             } catch (FileNotFoundException e) {
+                mWorkerClosed = true;
+                synchronized (mSyncWaiters) {
+                    mSyncClosed = true;
+                }
+                mWorker.quitSafely();
                 handleWorkerError("File creation failed", e);
             }
             mRingBuf = ringBuf;
+            mHighWaterMark = highWaterMark;
+            mMaxLatencyMs = maxLatencyMs;
+            mMaxChunkSize = Math.max(chunkSize, ringBuf.availableWriteLen());
             mChunkBuffer = new byte[chunkSize];
-            mHandler = new Handler(mHandlerThread.getLooper(), this);
         }
 
-        void scheduleWrite() {
+        // called by producers after data written
+        void onDataWritten() {
+            if (mWorkerClosed) return;
+            if (mRingBuf.availableReadLen() >= mHighWaterMark) {
+                wakeNow();
+            } else if (mWakeState.compareAndSet(WAKE_IDLE, WAKE_DELAYED)) {
+                mWorker.postDelayed(mWriteTask, mMaxLatencyMs);
+            }
+        }
+
+        void wakeNow() {
             if (mWorkerClosed) return;
-            mHandler.removeMessages(MSG_WHAT_WRITE);
-            mHandler.sendEmptyMessage(MSG_WHAT_WRITE);
+            if (mWakeState.getAndSet(WAKE_NOW) != WAKE_NOW) {
+                mWorker.post(mWriteTask);
+            }
         }
 
         void sendFlushMsg() {
             if (mWorkerClosed) return;
-            mHandler.sendEmptyMessage(MSG_WHAT_FLUSH);
+            mWorker.post(mFlushTask);
+        }
+
+        void requestSync(final SyncFuture future) {
+            synchronized (mSyncWaiters) {
+                if (mSyncClosed) {
+                    future.fail(new IOException("AsyncFileWriter is closed"));
+                    return;
+                }
+                mSyncWaiters.add(future);
+            }
+            final Durability durability = mDurability;
+            // PERIODIC: next periodic sync completes it
+            if (Durability.PERIODIC != durability && mSyncScheduled.compareAndSet(false, true)) {
+                if (Durability.GROUP_COMMIT == durability) {
+                    mWorker.postDelayed(mSyncTask, mDurabilityPeriodMs);
+                } else {
+                    mWorker.post(mSyncTask);
+                }
+            }
+        }
+
+        private boolean hasSyncWaiters() {
+            synchronized (mSyncWaiters) {
+                return !mSyncWaiters.isEmpty();
+            }
+        }
+
+        void onDurabilityChanged() {
+            final int generation = mDurabilityGeneration.incrementAndGet();
+            if (Durability.PERIODIC == mDurability) {
+                mWorker.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mWorkerClosed || generation != mDurabilityGeneration.get()) return;
+                        if (mUnsyncedBytes > 0 || mRingBuf.availableReadLen() > 0 || hasSyncWaiters()) {
+                            runTask(TASK_SYNC);
+                        }
+                        mWorker.postDelayed(this, mDurabilityPeriodMs);
+                    }
+                }, mDurabilityPeriodMs);
+            } else if (hasSyncWaiters()) {
+                // waiters of former mode should not wait any more
+                mWorker.post(mSyncTask);
+            }
         }
 
         void sendCloseMsg() {
             if (mWorkerClosed) return;
             mWorkerClosed = true;
-            mHandler.sendEmptyMessage(MSG_WHAT_CLOSE);
+            mWorker.post(mCloseTask);
         }
 
-        @Override
-        public boolean handleMessage(@NonNull final Message msg) {
-            if (mFileWriter == null) return true;
+        private void runTask(final int task) {
+            if (mFinished || (mFileWriter == null && mChannelWriter == null)) return;
 
             try {
-                switch (msg.what) {
-                    case MSG_WHAT_WRITE:
+                switch (task) {
+                    case TASK_WRITE:
                         handleWrite();
                         break;
-                    case MSG_WHAT_FLUSH:
-                        mFileWriter.flush();
+                    case TASK_FLUSH:
+                        drain();
+                        flushWriter();
                         break;
-                    case MSG_WHAT_CLOSE:
+                    case TASK_CLOSE:
                         handleClose();
                         break;
+                    case TASK_SYNC:
+                        handleSync();
+                        break;
                     default:
-                        Log.w(TAG, "Unknown message: " + msg.what);
+                        PlatformLog.w(TAG, "Unknown task: " + task);
                 }
             } catch (Exception e) {
                 handleWorkerError("Worker operation failed", e);
             }
-            return true;
+        }
+
+        private List<SyncFuture> takeSyncWaiters() {
+            synchronized (mSyncWaiters) {
+                final List<SyncFuture> waiters = new ArrayList<>(mSyncWaiters);
+                mSyncWaiters.clear();
+                return waiters;
+            }
+        }
+
+        private void handleSync() throws IOException {
+            // reset before take waiters, waiters come later schedule another sync
+            mSyncScheduled.set(false);
+            final List<SyncFuture> waiters = takeSyncWaiters();
+            try {
+                drain();
+                syncWriter();
+            } catch (Exception e) {
+                // waiters are taken, nobody else completes them. writer in error state throws IllegalStateException
+                final IOException ex = e instanceof IOException ? (IOException) e : new IOException("Sync failed", e);
+                for (SyncFuture waiter : waiters) {
+                    waiter.fail(ex);
+                }
+                throw e;
+            }
+            for (SyncFuture waiter : waiters) {
+                waiter.complete();
+            }
+        }
+
+        private void syncWriter() throws IOException {
+            if (null != mFileWriter) {
+                mFileWriter.sync();
+            } else {
+                mChannelWriter.sync();
+            }
+            mUnsyncedBytes = 0;
+        }
+
+        private void openWriter() throws FileNotFoundException {
+            if (Backend.FILE_CHANNEL == mBackend) {
+                mChannelWriter = new FileChannelWriter(mFile);
+            } else {
+                mFileWriter = new FileWriter(mFile, mChunkSize);
+            }
+        }
+
+        private void closeWriter() {
+            if (null != mFileWriter) {
+                mFileWriter.close();
+            } else {
+                mChannelWriter.close();
+            }
+        }
+
+        // called before write len bytes to file
+        private void beforeWrite(final int len) throws IOException {
+            final RollingPolicy policy = mRollingPolicy;
+            mUnsyncedBytes += len;
+            if (null == policy) {
+                mSegmentSize += len;
+                return;
+            }
+            final long now = System.currentTimeMillis();
+            if (policy != mAppliedRollingPolicy) {
+                mAppliedRollingPolicy = policy;
+                mSegmentRollTimeMs = policy.nextRollTimeMs(now);
+            }
+            if (policy.shouldRoll(mSegmentSize, len, now, mSegmentRollTimeMs)) {
+                roll(policy, now);
+            }
+            mSegmentSize += len;
+        }
+
+        private void roll(final RollingPolicy policy, final long now) throws IOException {
+            // segment can't be synced after closed, sync now if anyone cares
+            if (Durability.NONE != mDurability || hasSyncWaiters()) {
+                syncWriter();
+            } else {
+                flushWriter();
+            }
+            closeWriter();
+            if (mSegmentIndex < 0) {
+                mSegmentIndex = RollingPolicy.lastSegmentIndex(mFile);
+            }
+            final File segment = RollingPolicy.segmentFile(mFile, ++mSegmentIndex);
+            // not reopen if rename failed, that truncates the file
+            if (!mFile.renameTo(segment)) {
+                throw new IOException("failed on rename " + mFile.getAbsolutePath() + " to " + segment.getName());
+            }
+            openWriter();
+            mSegmentSize = 0;
+            mSegmentRollTimeMs = policy.nextRollTimeMs(now);
+            if (null == mHousekeeper) {
+                mHousekeeper = new ExecutorSerialWorker(TAG + "-housekeeper");
+            }
+            mHousekeeper.post(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        policy.onSegmentRolled(mFile, segment);
+                    } catch (Exception e) {
+                        PlatformLog.w(TAG, "Housekeeping failed on " + segment.getName(), e);
+                    }
+                }
+            });
+        }
+
+        private void flushWriter() throws IOException {
+            // channel writer has no java side buffer
+            if (null != mFileWriter) {
+                mFileWriter.flush();
+            }
         }
 
         private void handleWrite() throws IOException {
-            int available = mRingBuf.availableReadLen();
-            if (available <= 0) return;
+            // reset state before drain: data written after this point wakes worker again,
+            // data written before is drained now. the other pending wake (if any) just finds less data.
+            mWakeState.set(WAKE_IDLE);
+            drain();
+        }
+
+        // write all data readable now to file, then spilled data
+        private void drain() throws IOException {
+            drainRing();
+            if (null == mSpillBuf) return;
+            while (mSpilling) {
+                final ByteRing spillBuf = mSpillBuf;
+                final int read;
+                synchronized (spillBuf) {
+                    // data wrote to ring before spilling started goes first
+                    if (mRingBuf.availableReadLen() > 0) {
+                        read = -1;
+                    } else {
+                        ensureChunkBuffer(spillBuf.availableReadLen());
+                        read = spillBuf.read(mChunkBuffer, 0, mChunkBuffer.length);
+                        if (spillBuf.isEmpty()) {
+                            mSpilling = false;
+                        }
+                    }
+                }
+                if (read < 0) {
+                    drainRing();
+                } else if (read > 0) {
+                    writeChunk(read);
+                }
+            }
+        }
+
+        private void drainRing() throws IOException {
+            int remaining = mRingBuf.availableReadLen();
+            while (remaining > 0) {
+                final int drained = null != mChannelWriter && OverflowPolicy.DROP_OLDEST != mOverflowPolicy ?
+                        drainToChannel(remaining) : drainByCopy(remaining);
+                if (drained < 1) break;
+                remaining -= drained;
+            }
+        }
 
-            int toRead = Math.min(available, mChunkBuffer.length);
-            int read = mRingBuf.read(mChunkBuffer, 0, toRead);
+        private void ensureChunkBuffer(final int len) {
+            if (len > mChunkBuffer.length && mChunkBuffer.length < mMaxChunkSize) {
+                int size = mChunkBuffer.length;
+                while (size < len && size < mMaxChunkSize) {
+                    size <<= 1;
+                }
+                mChunkBuffer = new byte[Math.min(size, mMaxChunkSize)];
+            }
+        }
+
+        private void writeChunk(final int len) throws IOException {
+            beforeWrite(len);
+            if (null != mFileWriter) {
+                mFileWriter.write(mChunkBuffer, 0, len);
+                return;
+            }
+            if (null == mChunkByteBuffer || mChunkByteBuffer.array() != mChunkBuffer) {
+                mChunkByteBuffer = ByteBuffer.wrap(mChunkBuffer);
+            }
+            mChunkByteBuffer.clear().limit(len);
+            mChannelWriter.write(mChunkByteBuffer);
+        }
+
+        private int drainByCopy(final int len) throws IOException {
+            ensureChunkBuffer(len);
+            final int read;
+            mReadLock.lock();
+            try {
+                read = mRingBuf.read(mChunkBuffer, 0, Math.min(len, mChunkBuffer.length));
+            } finally {
+                mReadLock.unlock();
+            }
             if (read > 0) {
-                mFileWriter.write(mChunkBuffer, 0, read);
+                writeChunk(read);
             }
+            return read;
+        }
 
-            // 如果还有数据，再次调度写入
-            if (mRingBuf.availableReadLen() > 0) {
-                scheduleWrite();
+        // zero-copy, ring data is held during file write
+        private int drainToChannel(final int len) throws IOException {
+            mReadLock.lock();
+            try {
+                final ByteBuffer[] regions = mRingBuf.acquireRead(len);
+                int acquired = 0;
+                for (ByteBuffer region : regions) {
+                    acquired += region.remaining();
+                }
+                if (acquired > 0) {
+                    beforeWrite(acquired);
+                    mChannelWriter.write(regions);
+                    mRingBuf.releaseRead(acquired);
+                }
+                return acquired;
+            } finally {
+                mReadLock.unlock();
             }
         }
 
         private void handleClose() {
             try {
                 // 写入剩余数据
-                while (mRingBuf.availableReadLen() > 0) {
-                    handleWrite();
+                while (mRingBuf.availableReadLen() > 0 || mSpilling) {
+                    drain();
                 }
 
-                mFileWriter.flush();
+                if (Durability.NONE != mDurability || hasSyncWaiters()) {
+                    handleSync();
+                } else {
+                    flushWriter();
+                }
             } catch (Exception e) {
                 handleWorkerError("Final flush failed", e);
             } finally {
+                synchronized (mSyncWaiters) {
+                    mSyncClosed = true;
+                }
+                for (SyncFuture waiter : takeSyncWaiters()) {
+                    waiter.fail(new IOException("AsyncFileWriter is closed"));
+                }
                 try {
-                    mFileWriter.close();
+                    closeWriter();
                 } catch (Exception e) {
-                    Log.w(TAG, "Close error: " + e.getMessage());
+                    PlatformLog.w(TAG, "Close error: " + e.getMessage());
                 }
+                mFinished = true;
                 mRingBuf.close();
+                if (null != mHousekeeper) {
+                    mHousekeeper.quitSafely();
+                }
 
                 // 确保线程退出
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
-                    mHandlerThread.quitSafely();
-                } else {
-                    mHandlerThread.quit();
-                }
+                mWorker.quitSafely();
             }
         }
     }
@@ -5,17 +5,82 @@ import androidx.annotation.Keep;
 import com.threshold.jni.AutoCoverBufferJni;
 
 import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Multi Consumer(read) and Multi Producer(write) AutoCoverBuffer.
+ *
+ * <p> for multiple readers, prefer {@link Cursor} from {@link #newCursor()}: each reader holds
+ * it's own cursor and reads without any lock, so a slow reader never blocks the writer
+ * or other readers, it just gets {@link #ERR_DATA_COVERED} when writer overran it. </p>
+ * <p> with time index enabled, {@link #readLast(long, TimeUnit, byte[], int, int)} reads
+ * the data written in last N milliseconds, such as pre-roll audio. </p>
  */
 @Keep
 public class AutoCoverBuffer implements Closeable {
 
+    /**
+     * invalid param value, such as read position after write position
+     */
+    public static final int ERR_INVALID_PARAM = -2;
+    /**
+     * the data you want to read is already covered by writer
+     */
+    public static final int ERR_DATA_COVERED = -3;
+    /**
+     * the data you want to read is not enough, maybe read it later(try again)
+     */
+    public static final int ERR_DATA_NOT_ENOUGH = -4;
+
+    /**
+     * detail of {@link #read(long, byte[], int, int, ReadResult)},
+     * tells reader where to resync after overran by writer. reuse it to avoid allocation.
+     */
+    public static final class ReadResult {
+        private long mOverwritten;
+        private long mOldestPosition;
+        private long mWritePosition;
+
+        /**
+         * @return bytes covered by writer since the read position, 0 if nothing covered
+         */
+        public long getOverwritten() {
+            return mOverwritten;
+        }
+
+        /**
+         * @return the oldest position still valid to read, resync to it if overwritten
+         */
+        public long getOldestPosition() {
+            return mOldestPosition;
+        }
+
+        /**
+         * @return the write position when read
+         */
+        public long getWritePosition() {
+            return mWritePosition;
+        }
+    }
+
     // store auto cover buffer native handle. why use long: for compat with 64bit OS
     private long mNativeHandle;
-    // current write byte position. maybe overflow, that is normal behaviour.
-    private int mWritePos = 0;
+    private final int mCapacity;
+    // write position: total written bytes, published after data written. never overflow.
+    private volatile long mWriteSeq = 0;
+    // write sequence after the writing one finished, published before data written.
+    // data before (mWriteClaim - capacity) may be covered at any moment.
+    // ordering contract of the lock free read(like seqlock):
+    // writer: store mWriteClaim -> full fence in native write -> store data -> store mWriteSeq.
+    // reader: load data in native readAt -> acquire fence at the end of it -> load mWriteClaim.
+    // so if the re-check in copyAt passes, no data the reader copied was overwritten.
+    private volatile long mWriteClaim = 0;
+    // optional time index, (nanoTime, write position) pair of each write. null if disabled.
+    private final AtomicLongArray mTimeIndex;
+    private final int mTimeIndexSize;
+    // total index entries written, entry i lives at slot (i % mTimeIndexSize)
+    private volatile long mTimeIndexCount = 0;
 
     /**
      * init auto cover buffer with size
@@ -24,34 +89,99 @@ public class AutoCoverBuffer implements Closeable {
      * @param bufferSize capacity of ring in bytes
      */
     public AutoCoverBuffer(int bufferSize) {
+        this(bufferSize, 0);
+    }
+
+    /**
+     * init auto cover buffer with size and time index
+     * <p> each write records it's (nanoTime, write position) to the time index,
+     * so you can find data by time, see {@link #positionAt(long)}. </p>
+     *
+     * @param bufferSize    capacity of ring in bytes
+     * @param timeIndexSize how many writes the time index remembers, 0 to disable it.
+     *                      it should cover the writes in buffer, e.g. 10ms audio frame
+     *                      with 2s buffer needs at least 200.
+     */
+    public AutoCoverBuffer(int bufferSize, int timeIndexSize) {
         if (bufferSize < 2) {
             throw new IllegalArgumentException(String.format("illegal bufferSize(%d)", bufferSize));
         }
+        if (timeIndexSize < 0) {
+            throw new IllegalArgumentException(String.format("illegal timeIndexSize(%d)", timeIndexSize));
+        }
+        mTimeIndexSize = timeIndexSize;
+        mTimeIndex = timeIndexSize > 0 ? new AtomicLongArray(timeIndexSize * 2) : null;
         final long[] nativeHandleHolder = new long[]{0};
         int ret = AutoCoverBufferJni.create(nativeHandleHolder, bufferSize);
         if (0 != ret || 0 == nativeHandleHolder[0]) {
             throw new IllegalArgumentException(String.format("failed on create auto cover buffer jni. bufferSize=%d", bufferSize));
         }
         mNativeHandle = nativeHandleHolder[0];
+        mCapacity = AutoCoverBufferJni.capacity(mNativeHandle);
+    }
+
+    /**
+     * the real capacity of buffer
+     *
+     * @return capacity in bytes
+     */
+    public int capacity() {
+        return mCapacity;
     }
 
     /**
      * get available read len in ring by readPos
      *
      * @param readPos read position
-     * @return available read len in bytes. if returned negative number, that means error.
+     * @return available read len in bytes. if returned negative number, that means error:
+     * {@link #ERR_DATA_COVERED} if readPos is covered or no data available on it,
+     * {@link #ERR_INVALID_PARAM} if readPos is after write position.
      */
-    public int availableReadLen(int readPos) {
-        return AutoCoverBufferJni.availableRead(mNativeHandle, readPos);
+    public int availableReadLen(long readPos) {
+        final long writePos = mWriteSeq;
+        if (readPos > writePos) {
+            return ERR_INVALID_PARAM;
+        }
+        if (readPos == writePos || readPos < writePos - mCapacity) {
+            return ERR_DATA_COVERED;
+        }
+        return (int) (writePos - readPos);
     }
 
     /**
-     * get current write position
+     * get current write position: total bytes written, it never overflow.
      *
      * @return write position
      */
-    public int getWritePos() {
-        return mWritePos;
+    public long getWritePos() {
+        return mWriteSeq;
+    }
+
+    /**
+     * get the oldest position still valid to read
+     *
+     * @return oldest position
+     */
+    public long getOldestPos() {
+        return Math.max(0, mWriteSeq - mCapacity);
+    }
+
+    /**
+     * create a cursor which starts at current write position, so it only sees data written after.
+     *
+     * @return new cursor
+     */
+    public Cursor newCursor() {
+        return new Cursor(mWriteSeq);
+    }
+
+    /**
+     * create a cursor which starts at the oldest data still in buffer.
+     *
+     * @return new cursor
+     */
+    public Cursor newCursorAtOldest() {
+        return new Cursor(getOldestPos());
     }
 
     /**
@@ -63,10 +193,22 @@ public class AutoCoverBuffer implements Closeable {
      * @return real write data len, negative return value means error occurred
      */
     public synchronized int write(final byte[] data, int offset, int len) {
+        final long now = null == mTimeIndex ? 0 : System.nanoTime();
+        final long writeSeq = mWriteSeq;
+        // tell cursor readers which data is going to be covered before we touch it.
+        mWriteClaim = writeSeq + len;
         int ret = AutoCoverBufferJni.write(mNativeHandle, data, offset, len);
         if (ret > 0) {
-            mWritePos += ret;
+            mWriteSeq = writeSeq + ret;
+            if (null != mTimeIndex) {
+                final long count = mTimeIndexCount;
+                final int slot = (int) (count % mTimeIndexSize) * 2;
+                mTimeIndex.set(slot, now);
+                mTimeIndex.set(slot + 1, writeSeq);
+                mTimeIndexCount = count + 1;
+            }
         }
+        mWriteClaim = mWriteSeq;
         return ret;
     }
 
@@ -80,6 +222,54 @@ public class AutoCoverBuffer implements Closeable {
         return write(data, 0, data.length);
     }
 
+    /**
+     * copy n bytes at pos without lock, n should not exceed available len of pos.
+     *
+     * @return n, or {@link #ERR_DATA_COVERED} if writer covered it while copying
+     */
+    private int copyAt(final long pos, final byte[] buffer, final int offset, final int n) {
+        AutoCoverBufferJni.readAt(mNativeHandle, (int) pos, buffer, offset, n);
+        // writer may cover our data while copying, check it like seqlock does.
+        if (pos < mWriteClaim - mCapacity) {
+            return ERR_DATA_COVERED;
+        }
+        return n;
+    }
+
+    /**
+     * read data from ring by read position, data is not removed, other readers could read it too.
+     * <p> it is lock free and never blocks the writer. </p>
+     *
+     * @param readPos read position
+     * @param buffer  store read out data
+     * @param offset  buffer start offset
+     * @param len     how long you want to read
+     * @param result  nullable, filled with overwritten len and the oldest valid position
+     * @return len if read; {@link #ERR_DATA_NOT_ENOUGH} if available data less than len;
+     * {@link #ERR_DATA_COVERED} if data on readPos is covered by writer(before or while reading);
+     * {@link #ERR_INVALID_PARAM} if readPos is after write position
+     */
+    public int read(long readPos, final byte[] buffer, int offset, int len, final ReadResult result) {
+        final long writePos = mWriteSeq;
+        final long oldest = Math.max(0, writePos - mCapacity);
+        int ret;
+        if (readPos > writePos) {
+            ret = ERR_INVALID_PARAM;
+        } else if (readPos < oldest) {
+            ret = ERR_DATA_COVERED;
+        } else if (writePos - readPos < len) {
+            ret = ERR_DATA_NOT_ENOUGH;
+        } else {
+            ret = copyAt(readPos, buffer, offset, len);
+        }
+        if (null != result) {
+            result.mWritePosition = writePos;
+            result.mOldestPosition = ERR_DATA_COVERED == ret ? getOldestPos() : oldest;
+            result.mOverwritten = Math.max(0, result.mOldestPosition - readPos);
+        }
+        return ret;
+    }
+
     /**
      * read data from ring by read position.
      *
@@ -87,10 +277,11 @@ public class AutoCoverBuffer implements Closeable {
      * @param buffer  store read out data
      * @param offset  buffer start offset
      * @param len     how long you want to read
-     * @return real read out data len
+     * @return real read out data len, negative number means error,
+     * see {@link #read(long, byte[], int, int, ReadResult)}
      */
-    public synchronized int read(int readPos, final byte[] buffer, int offset, int len) {
-        return AutoCoverBufferJni.read(mNativeHandle, readPos, buffer, offset, len);
+    public int read(long readPos, final byte[] buffer, int offset, int len) {
+        return read(readPos, buffer, offset, len, null);
     }
 
     /**
@@ -100,10 +291,179 @@ public class AutoCoverBuffer implements Closeable {
      * @param buffer  store read out data
      * @return real read out data len
      */
-    public int read(int readPos, final byte[] buffer) {
+    public int read(long readPos, final byte[] buffer) {
         return read(readPos, buffer, 0, buffer.length);
     }
 
+    /**
+     * find the write position of data written at or after nanoTime, in O(log n).
+     * <p> position is clamped to the oldest one still valid in buffer or time index. </p>
+     *
+     * @param nanoTime time from {@link System#nanoTime()}
+     * @return start position of the first write at or after nanoTime,
+     * current write position if nothing written since then
+     * @throws IllegalStateException if time index is disabled
+     */
+    public long positionAt(final long nanoTime) {
+        if (null == mTimeIndex) {
+            throw new IllegalStateException("time index is disabled, see AutoCoverBuffer(int, int)");
+        }
+        while (true) {
+            final long writePos = mWriteSeq;
+            final long count = mTimeIndexCount;
+            // skip the oldest slot, writer may be overwriting it right now.
+            final long first = Math.max(0, count - mTimeIndexSize + 1);
+            long lo = first;
+            long hi = count;
+            while (lo < hi) {
+                final long mid = (lo + hi) >>> 1;
+                if (mTimeIndex.get((int) (mid % mTimeIndexSize) * 2) < nanoTime) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            final long position = lo < count ?
+                    mTimeIndex.get((int) (lo % mTimeIndexSize) * 2 + 1) : writePos;
+            // writer overran the entries we searched, search again.
+            if (first < mTimeIndexCount - mTimeIndexSize + 1) {
+                continue;
+            }
+            return Math.max(position, getOldestPos());
+        }
+    }
+
+    /**
+     * read data written at or after nanoTime.
+     * <p> it reads from {@link #positionAt(long)}, at most len bytes.
+     * size your buffer with {@link #getWritePos()} - {@link #positionAt(long)} to get all of them. </p>
+     *
+     * @param nanoTime time from {@link System#nanoTime()}
+     * @param buffer   store read out data
+     * @param offset   buffer start offset
+     * @param len      max len you want to read, at most capacity bytes are read
+     * @return real read out data len, or {@link #ERR_DATA_COVERED} if writer covered it before or while reading
+     * @throws IllegalStateException if time index is disabled
+     */
+    public int readSince(final long nanoTime, final byte[] buffer, int offset, int len) {
+        final long position = positionAt(nanoTime);
+        // snapshot write position once, and never read more than capacity even if writer goes far ahead.
+        final long writePos = mWriteSeq;
+        final int n = (int) Math.min(len, Math.min(writePos - position, mCapacity));
+        if (n < 1) {
+            return 0;
+        }
+        return read(position, buffer, offset, n, null);
+    }
+
+    /**
+     * read data written in the last duration, such as pre-roll audio of last 500ms.
+     *
+     * @param duration the duration before now
+     * @param unit     unit of duration
+     * @param buffer   store read out data
+     * @param offset   buffer start offset
+     * @param len      max len you want to read, at most capacity bytes are read
+     * @return real read out data len, or {@link #ERR_DATA_COVERED} if writer covered it before or while reading
+     * @throws IllegalStateException if time index is disabled
+     * @see #readSince(long, byte[], int, int)
+     */
+    public int readLast(final long duration, final TimeUnit unit, final byte[] buffer, int offset, int len) {
+        return readSince(System.nanoTime() - unit.toNanos(duration), buffer, offset, len);
+    }
+
+    /**
+     * read cursor of one reader, it reads without lock and never blocks the writer.
+     * <p> one cursor should only be used by one thread,
+     * create a cursor for each reader. </p>
+     */
+    public final class Cursor {
+
+        private long mPosition;
+
+        private Cursor(long position) {
+            mPosition = position;
+        }
+
+        /**
+         * get current read position(write position of next byte to read)
+         *
+         * @return read position
+         */
+        public long position() {
+            return mPosition;
+        }
+
+        /**
+         * move the cursor to position
+         *
+         * @param position write position of next byte to read
+         */
+        public void seek(long position) {
+            if (position < 0 || position > mWriteSeq) {
+                throw new IllegalArgumentException(String.format("illegal position(%d), writePos=%d",
+                        position, mWriteSeq));
+            }
+            mPosition = position;
+        }
+
+        /**
+         * move the cursor to the oldest data still in buffer, call it after overran by writer.
+         *
+         * @return bytes skipped
+         */
+        public long skipToOldest() {
+            final long oldest = getOldestPos();
+            final long skipped = Math.max(0, oldest - mPosition);
+            mPosition += skipped;
+            return skipped;
+        }
+
+        /**
+         * available read len from this cursor
+         *
+         * @return available read len in bytes, or {@link #ERR_DATA_COVERED} if overran by writer
+         */
+        public int available() {
+            final long writeSeq = mWriteSeq;
+            if (mPosition < writeSeq - mCapacity) {
+                return ERR_DATA_COVERED;
+            }
+            return (int) (writeSeq - mPosition);
+        }
+
+        /**
+         * read data from cursor position, and move cursor forward.
+         *
+         * @param buffer store read out data
+         * @param offset buffer start offset
+         * @param len    how long you want to read
+         * @return real read out data len, or {@link #ERR_DATA_COVERED} if overran by writer
+         * (before or while reading), cursor is not moved in this case.
+         */
+        public int read(final byte[] buffer, int offset, int len) {
+            final int available = available();
+            if (available < 1) {
+                return available;
+            }
+            final int n = copyAt(mPosition, buffer, offset, Math.min(available, len));
+            if (n > 0) {
+                mPosition += n;
+            }
+            return n;
+        }
+
+        /**
+         * read data from cursor position, and move cursor forward.
+         *
+         * @param buffer store read out data
+         * @return real read out data len, or {@link #ERR_DATA_COVERED} if overran by writer
+         */
+        public int read(final byte[] buffer) {
+            return read(buffer, 0, buffer.length);
+        }
+    }
+
     /**
      * close the ring and free it's memory on native.
      * <p>do not use this instance any more after call this!</p>
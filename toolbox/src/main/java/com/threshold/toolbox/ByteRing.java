@@ -0,0 +1,188 @@
+package com.threshold.toolbox;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * FIFO byte ring, One Consumer(read) and One Producer(write) Thread-Safe.
+ *
+ * <p> implementations: {@link RingBuffer} (native memory, JNI),
+ * {@link SpscByteRing} (pure java, no JNI)
+ * and {@link MpscByteRing} (pure java, multi producer).
+ * rings with zero-copy write implement {@link ZeroCopyByteRing}. </p>
+ * <p> not all of method are thread-safe(such as clear),
+ * read/write thread-safe only in this condition: 1 consumer and 1 producer </p>
+ */
+public interface ByteRing extends Closeable {
+
+    /**
+     * get used byte len in ring
+     *
+     * @return ring used len in bytes
+     */
+    int availableReadLen();
+
+    /**
+     * get free space in ring
+     *
+     * @return ring free space len in bytes
+     */
+    int availableWriteLen();
+
+    /**
+     * detect ring whether has data to read
+     *
+     * @return true for empty
+     */
+    boolean isEmpty();
+
+    /**
+     * detect ring whether has space to write
+     *
+     * @return true for full
+     */
+    boolean isFull();
+
+    /**
+     * write data to ring
+     *
+     * @param data   the data you want to write to ring
+     * @param offset data offset
+     * @param len    how long you want to write to ring
+     * @return real write data len
+     */
+    int write(byte[] data, int offset, int len);
+
+    /**
+     * write byte data to ring
+     *
+     * @param data the data you want to write to ring
+     * @return real write data len
+     */
+    int write(byte[] data);
+
+    /**
+     * write data to ring from ByteBuffer, src's position is advanced by the real write len.
+     *
+     * @param src the data you want to write to ring
+     * @return real write data len
+     */
+    int write(ByteBuffer src);
+
+    /**
+     * write all data to ring, block until consumer frees enough space or timeout.
+     *
+     * @param data      the data you want to write to ring
+     * @param offset    data offset
+     * @param len       how long you want to write to ring
+     * @param timeoutMs max wait time in milliseconds, negative for wait forever
+     * @return real write data len, less than len only if timeout
+     * @throws InterruptedException if interrupted while waiting, data may be partially written
+     */
+    int writeFully(byte[] data, int offset, int len, long timeoutMs) throws InterruptedException;
+
+    /**
+     * read data from ring
+     *
+     * @param buffer store read out data
+     * @param offset buffer start offset
+     * @param len    how long you want to read
+     * @return real read out data len
+     */
+    int read(byte[] buffer, int offset, int len);
+
+    /**
+     * read data from ring
+     *
+     * @param buffer store read out data
+     * @return real read out data len
+     */
+    int read(byte[] buffer);
+
+    /**
+     * read data from ring to ByteBuffer, dst's position is advanced by the real read len.
+     *
+     * @param dst store read out data
+     * @return real read out data len
+     */
+    int read(ByteBuffer dst);
+
+    /**
+     * read data from ring to buffer(start at 0), block until at least min bytes read or timeout.
+     * <p> it reads as much as available (up to buffer.length) without waiting again. </p>
+     *
+     * @param buffer    store read out data
+     * @param min       the min len you want to read, should not exceed buffer.length
+     * @param timeoutMs max wait time in milliseconds, negative for wait forever
+     * @return real read out data len, less than min only if timeout
+     * @throws InterruptedException if interrupted while waiting, data may be partially read
+     */
+    int readAtLeast(byte[] buffer, int min, long timeoutMs) throws InterruptedException;
+
+    /**
+     * discard data from ring.
+     * <p> just like read, but not really copy data out.</p>
+     *
+     * @param len how long would you want to discard
+     * @return real discard len
+     */
+    int discard(int len);
+
+    /**
+     * peek data from ring, but not remove it from ring.
+     *
+     * @param buffer your buffer to store data
+     * @param offset buffer offset
+     * @param len    how long would you want to peek
+     * @return real peek len
+     */
+    int peek(byte[] buffer, int offset, int len);
+
+    /**
+     * peek data from ring, but not remove it from ring.
+     *
+     * @param buffer your buffer to store data
+     * @return real peek len
+     */
+    int peek(byte[] buffer);
+
+    /**
+     * peek data from ring to ByteBuffer, dst's position is advanced by the real peek len.
+     *
+     * @param dst your buffer to store data
+     * @return real peek len
+     */
+    int peek(ByteBuffer dst);
+
+    /**
+     * acquire data on ring memory for zero-copy read (consumer side).
+     * <p> the returned array and it's ByteBuffers are reused on next acquire, do not hold them. </p>
+     *
+     * @param len how long you want to read
+     * @return one region, or two regions if data wraps around the end of ring.
+     * empty array if ring is empty
+     */
+    ByteBuffer[] acquireRead(int len);
+
+    /**
+     * release data which acquired by {@link #acquireRead(int)}.
+     *
+     * @param len how long you consumed, should not exceed acquired len
+     * @return real released len
+     */
+    int releaseRead(int len);
+
+    /**
+     * clear all data on the ring, NOT THREAD-SAFE!
+     * <p> call this method you should ensure ring not in read/write state! </p>
+     */
+    void clear();
+
+    /**
+     * close the ring and free it's memory.
+     * <p>do not use this instance any more after call this!</p>
+     */
+    @Override
+    void close();
+
+}
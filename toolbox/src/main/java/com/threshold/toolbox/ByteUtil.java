@@ -2,7 +2,6 @@ package com.threshold.toolbox;
 
 import androidx.annotation.Keep;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -130,23 +129,15 @@ public class ByteUtil {
     public static byte[] transformIntToShortFloat(byte[] input, int offset, int length) {
         final int inputSamples = length / 4; // 32 bit input,  4 bytes per sample
         final byte[] out = new byte[length];
-//        ByteArrayOutputStream bos = new ByteArrayOutputStream(length);
-        try {
-            for (int n = 0; n < inputSamples; n++) {
-                //Tip: 原始音频是32bit signed int小尾端的，但Java默认是大端的，所以每4个字节转int的时候要注意下字节序，确保转出来的int不能错。
-                //      另外32bit signed int小尾端转 32bit float 要乘以2次ratio系数，这样才能让每个采样点在0~1之间，这样生成的音频才能在Audacity中听.
-                //      之所以我在这里只乘以一次系数，那是因为引擎那边在处理的时候会再次乘一次系数，所以嘛你懂的了吧。
-                int sample = littleEndianBytesToInt(input, offset + n * 4);
-                float f = sample * INT2FLOAT_RATIO;//* FLOAT_RATIO;
-                byte[] bytes = float2bytes(f);
-                System.arraycopy(bytes, 0, out, n * 4, bytes.length);
-//                bos.write(float2bytes(f));
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
+        final ByteBuffer src = ByteBuffer.wrap(input).order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer dst = ByteBuffer.wrap(out).order(ByteOrder.LITTLE_ENDIAN);
+        for (int n = 0; n < inputSamples; n++) {
+            //Tip: 原始音频是32bit signed int小尾端的，但Java默认是大端的，所以每4个字节转int的时候要注意下字节序，确保转出来的int不能错。
+            //      另外32bit signed int小尾端转 32bit float 要乘以2次ratio系数，这样才能让每个采样点在0~1之间，这样生成的音频才能在Audacity中听.
+            //      之所以我在这里只乘以一次系数，那是因为引擎那边在处理的时候会再次乘一次系数，所以嘛你懂的了吧。
+            dst.putFloat(n * 4, src.getInt(offset + n * 4) * INT2FLOAT_RATIO);
         }
         return out;
-//        return bos.toByteArray();
     }
 
     /**
@@ -154,42 +145,29 @@ public class ByteUtil {
      */
     public static byte[] transformShortFloatToInt(byte[] input, int offset, int length) {
         final int inputSamples = length / 4; // 32 bit input,  4 bytes per sample
-        final ByteArrayOutputStream bos = new ByteArrayOutputStream(length);
-        try {
-            for (int n = 0; n < inputSamples; n++) {
-                float sample = fourBytes2float(input, offset + n * 4);
-                //这里之所以除一次原因同上
-                int intSample = (int) (sample / INT2FLOAT_RATIO);// / FLOAT_RATIO);
-                bos.write(intToLittleEndianBytes(intSample));
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
+        final byte[] out = new byte[inputSamples * 4];
+        final ByteBuffer src = ByteBuffer.wrap(input).order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer dst = ByteBuffer.wrap(out).order(ByteOrder.LITTLE_ENDIAN);
+        for (int n = 0; n < inputSamples; n++) {
+            //这里之所以除一次原因同上
+            dst.putInt(n * 4, (int) (src.getFloat(offset + n * 4) / INT2FLOAT_RATIO));
         }
-        return bos.toByteArray();
+        return out;
     }
 
     //16bit to 32bit float.Here is reference: https://blog.csdn.net/kimmking/article/details/8752737
     public static float[] convertShortToFloat(byte[] input) {
         final int inputSamples = input.length / 2; // 16 bit input, so 2 bytes per sample
         final float[] output = new float[inputSamples];
-        int outputIndex = 0;
-        for (int n = 0; n < inputSamples; n++) {
-            short sample = BitConverter.toInt16(input, n * 2);
-            output[outputIndex++] = sample / 32768f;
-        }
+        SampleConverter.toFloat(input, 0, Resample.SampleUnit.INT16, output, 0, inputSamples);
         return output;
     }
 
     //16bit to 32bit float.Here is reference: https://blog.csdn.net/kimmking/article/details/8752737
     public static void convertShortToFloat(byte[] input, byte[] output) {
         final int inputSamples = input.length / 2; // 16 bit input, so 2 bytes per sample
-        //float[] output = new float[inputSamples];
-        for (int n = 0; n < inputSamples; n++) {
-            short sample = BitConverter.toInt16(input, n * 2);
-            float fSample = sample / 32768f;
-            byte[] fBytes = float2bytes(fSample);
-            System.arraycopy(fBytes, 0, output, n * 4, 4);
-        }
+        SampleConverter.convert(input, 0, Resample.SampleUnit.INT16,
+                output, 0, Resample.SampleUnit.FLOAT32, inputSamples);
     }
 
     public static short twoByte2short(byte[] bytes, int offset) {
@@ -249,6 +227,7 @@ public class ByteUtil {
     /**
      * 32bit 双声道音频 转 32bit 单声道音频
      * Stereo --> Mono
+     * <p> only left channel is kept, see {@link ChannelMixer} for downmix and other layouts </p>
      *
      * @param inBuffer  双声道音频
      * @param outBuffer 单声道音频
@@ -276,19 +255,10 @@ public class ByteUtil {
      */
     public static void transform16bitTo32bitSigned(final BufferWrapper inBuffer,
                                                    final BufferWrapper outBuffer) {
-//        byte[] outputs = new byte[bufferLen * 2];//16bit --> 32bit
         if (outBuffer.buffer.length < inBuffer.bufferUsed * 2) {
             throw new IllegalArgumentException("outBuffer is not enough.");
         }
-        int outputIndex = 0;
-        final int inputSamples = inBuffer.bufferUsed / 2; // 16 bit input, so 2 bytes per sample
-        for (int n = 0; n < inputSamples; ++n) {
-            final int sample = (BitConverter.toInt16(inBuffer.buffer, n * 2) << 16);
-            intToLittleEndianBytes(sample, outBuffer.buffer, outputIndex);
-            outputIndex += 4;
-        }
-        outBuffer.setBufferUsed(outputIndex);
-//        return outputs;
+        SampleConverter.convert(inBuffer, Resample.SampleUnit.INT16, outBuffer, Resample.SampleUnit.INT32);
     }
 
 
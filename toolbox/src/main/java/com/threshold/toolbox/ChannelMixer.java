@@ -0,0 +1,279 @@
+package com.threshold.toolbox;
+
+/**
+ * Channel mixer of interleaved PCM by an out x in matrix: downmix, channel pick, reorder and upmix.
+ *
+ * <p> out[o] = sum(matrix[o][i] * in[i]), format conversion from inUnit to outUnit is fused into
+ * the same pass, so the buffer is traversed once, see {@link SampleConverter} for the scaling. </p>
+ * <p> a matrix of only 0 and 1 with at most one 1 per row just routes channels(pick/reorder/duplicate),
+ * which is exact: bytes are copied for same unit, or converted in 32 bit integer for integer units.
+ * other matrices are computed in float(INT32 keeps 24 bits of precision), sums over full scale are clamped. </p>
+ * <p> not thread-safe, allocates nothing after construction: samples are decoded and encoded
+ * straight on the byte arrays by {@link SampleConverter} kernels. input and output must not overlap. </p>
+ */
+public class ChannelMixer {
+
+    // frames per round, scratch stays in L1 cache
+    private static final int CHUNK_FRAMES = 256;
+
+    private final int mInChannels;
+    private final int mOutChannels;
+    private final Resample.SampleUnit mInUnit;
+    private final Resample.SampleUnit mOutUnit;
+    // row major, mMatrix[o * mInChannels + i]
+    private final float[] mMatrix;
+    // out channel -> in channel, -1 is silence. null if the matrix really mixes
+    private final int[] mRoute;
+    private final float[] mInFloats;
+    private final float[] mOutFloats;
+    private final int[] mInInts;
+    private final int[] mOutInts;
+
+    public ChannelMixer(final float[][] matrix, final Resample.SampleUnit sampleUnit) {
+        this(matrix, sampleUnit, sampleUnit);
+    }
+
+    /**
+     * @param matrix  mix matrix, matrix[outChannel][inChannel]
+     * @param inUnit  输入采样数据类型
+     * @param outUnit 输出采样数据类型
+     */
+    public ChannelMixer(final float[][] matrix, final Resample.SampleUnit inUnit,
+                        final Resample.SampleUnit outUnit) {
+        if (matrix == null || matrix.length == 0 || matrix[0] == null || matrix[0].length == 0) {
+            throw new IllegalArgumentException("Matrix cannot be empty");
+        }
+        if (inUnit == null || outUnit == null) {
+            throw new IllegalArgumentException("Sample unit cannot be null");
+        }
+        mOutChannels = matrix.length;
+        mInChannels = matrix[0].length;
+        mInUnit = inUnit;
+        mOutUnit = outUnit;
+        mMatrix = new float[mOutChannels * mInChannels];
+        for (int o = 0; o < mOutChannels; o++) {
+            if (matrix[o] == null || matrix[o].length != mInChannels) {
+                throw new IllegalArgumentException(
+                        String.format("Row %d of matrix should have %d columns", o, mInChannels));
+            }
+            for (int i = 0; i < mInChannels; i++) {
+                if (Float.isNaN(matrix[o][i]) || Float.isInfinite(matrix[o][i])) {
+                    throw new IllegalArgumentException(String.format("Bad coefficient at [%d][%d]", o, i));
+                }
+            }
+            System.arraycopy(matrix[o], 0, mMatrix, o * mInChannels, mInChannels);
+        }
+        mRoute = findRoute(mMatrix, mOutChannels, mInChannels);
+        final boolean viaInt = mRoute != null && Resample.SampleUnit.FLOAT32 != inUnit &&
+                Resample.SampleUnit.FLOAT32 != outUnit && inUnit != outUnit;
+        final boolean viaFloat = !viaInt && (mRoute == null || inUnit != outUnit);
+        mInInts = viaInt ? new int[CHUNK_FRAMES * mInChannels] : null;
+        mOutInts = viaInt ? new int[CHUNK_FRAMES * mOutChannels] : null;
+        mInFloats = viaFloat ? new float[CHUNK_FRAMES * mInChannels] : null;
+        mOutFloats = viaFloat ? new float[CHUNK_FRAMES * mOutChannels] : null;
+    }
+
+    /**
+     * pick, reorder or duplicate channels.
+     *
+     * @param inChannels 输入声道数
+     * @param route      route[outChannel] is the input channel of it, -1 for silence
+     * @param inUnit     输入采样数据类型
+     * @param outUnit    输出采样数据类型
+     */
+    public static ChannelMixer route(final int inChannels, final int[] route,
+                                     final Resample.SampleUnit inUnit, final Resample.SampleUnit outUnit) {
+        if (inChannels <= 0) {
+            throw new IllegalArgumentException("Channel count must be positive");
+        }
+        if (route == null || route.length == 0) {
+            throw new IllegalArgumentException("Route cannot be empty");
+        }
+        final float[][] matrix = new float[route.length][inChannels];
+        for (int o = 0; o < route.length; o++) {
+            if (route[o] < -1 || route[o] >= inChannels) {
+                throw new IllegalArgumentException(
+                        String.format("Route of channel %d is out of range: %d", o, route[o]));
+            }
+            if (route[o] >= 0) {
+                matrix[o][route[o]] = 1f;
+            }
+        }
+        return new ChannelMixer(matrix, inUnit, outUnit);
+    }
+
+    /**
+     * average all input channels into mono.
+     *
+     * @param inChannels 输入声道数
+     * @param inUnit     输入采样数据类型
+     * @param outUnit    输出采样数据类型
+     */
+    public static ChannelMixer downmixToMono(final int inChannels,
+                                             final Resample.SampleUnit inUnit, final Resample.SampleUnit outUnit) {
+        if (inChannels <= 0) {
+            throw new IllegalArgumentException("Channel count must be positive");
+        }
+        final float[][] matrix = new float[1][inChannels];
+        for (int i = 0; i < inChannels; i++) {
+            matrix[0][i] = 1f / inChannels;
+        }
+        return new ChannelMixer(matrix, inUnit, outUnit);
+    }
+
+    private static int[] findRoute(final float[] matrix, final int outChannels, final int inChannels) {
+        final int[] route = new int[outChannels];
+        for (int o = 0; o < outChannels; o++) {
+            route[o] = -1;
+            for (int i = 0; i < inChannels; i++) {
+                final float coefficient = matrix[o * inChannels + i];
+                if (coefficient == 0) {
+                    continue;
+                }
+                if (coefficient != 1 || route[o] >= 0) {
+                    return null;
+                }
+                route[o] = i;
+            }
+        }
+        return route;
+    }
+
+    public int getInChannels() {
+        return mInChannels;
+    }
+
+    public int getOutChannels() {
+        return mOutChannels;
+    }
+
+    /**
+     * @param frames frames of one call
+     * @return output bytes of that call
+     */
+    public int getOutputBytes(final int frames) {
+        return frames * mOutChannels * mOutUnit.getBytesPerSample();
+    }
+
+    /**
+     * mix whole buffer, bufferUsed of outBuffer is set.
+     *
+     * @param inBuffer  输入音频缓冲区, bufferUsed should be whole frames
+     * @param outBuffer 输出音频缓冲区, capacity should hold {@link #getOutputBytes(int)}
+     * @return frames mixed
+     */
+    public int process(final BufferWrapper inBuffer, final BufferWrapper outBuffer) {
+        if (inBuffer == null || outBuffer == null) {
+            throw new IllegalArgumentException("Input and output buffers cannot be null");
+        }
+        final int frames = inBuffer.getBufferUsed() / (mInChannels * mInUnit.getBytesPerSample());
+        process(inBuffer.getBuffer(), 0, frames, outBuffer.getBuffer(), 0);
+        outBuffer.setBufferUsed(getOutputBytes(frames));
+        return frames;
+    }
+
+    /**
+     * @param in        输入, interleaved little endian
+     * @param inOffset  offset of in in bytes
+     * @param frames    帧数
+     * @param out       输出, interleaved little endian
+     * @param outOffset offset of out in bytes
+     * @throws IndexOutOfBoundsException if in or out is not enough for frames
+     */
+    public void process(final byte[] in, final int inOffset, final int frames,
+                        final byte[] out, final int outOffset) {
+        final int inFrameBytes = mInChannels * mInUnit.getBytesPerSample();
+        final int outFrameBytes = mOutChannels * mOutUnit.getBytesPerSample();
+        if (frames < 0 || inOffset < 0 || inOffset + (long) frames * inFrameBytes > in.length) {
+            throw new IndexOutOfBoundsException(String.format("%d frames at offset %d out of %d bytes",
+                    frames, inOffset, in.length));
+        }
+        if (outOffset < 0 || outOffset + (long) frames * outFrameBytes > out.length) {
+            throw new IndexOutOfBoundsException(String.format("%d frames at offset %d out of %d bytes",
+                    frames, outOffset, out.length));
+        }
+        if (mRoute != null && mInUnit == mOutUnit) {
+            copyRoute(in, inOffset, frames, out, outOffset);
+            return;
+        }
+        for (int done = 0; done < frames; ) {
+            final int n = Math.min(CHUNK_FRAMES, frames - done);
+            final int inPos = inOffset + done * inFrameBytes;
+            final int outPos = outOffset + done * outFrameBytes;
+            if (mInInts != null) {
+                SampleConverter.decodeInt(in, inPos, mInUnit, mInInts, n * mInChannels);
+                routeInts(n);
+                SampleConverter.encodeInt(mOutInts, n * mOutChannels, mOutUnit, out, outPos);
+            } else {
+                SampleConverter.decodeFloat(in, inPos, mInUnit, mInFloats, 0, n * mInChannels);
+                if (mRoute != null) {
+                    routeFloats(n);
+                } else {
+                    mix(n);
+                }
+                SampleConverter.encodeFloat(mOutFloats, 0, n * mOutChannels, mOutUnit, out, outPos);
+            }
+            done += n;
+        }
+    }
+
+    private void copyRoute(final byte[] in, final int inOffset, final int frames,
+                           final byte[] out, final int outOffset) {
+        final int sampleSize = mInUnit.getBytesPerSample();
+        final int inFrameBytes = mInChannels * sampleSize;
+        // 8-bit is unsigned, silence is 128
+        final byte silence = Resample.SampleUnit.INT8 == mInUnit ? (byte) 128 : 0;
+        int outPos = outOffset;
+        for (int f = 0, inFrame = inOffset; f < frames; f++, inFrame += inFrameBytes) {
+            for (int o = 0; o < mOutChannels; o++) {
+                final int source = mRoute[o];
+                if (source < 0) {
+                    for (int b = 0; b < sampleSize; b++) {
+                        out[outPos++] = silence;
+                    }
+                } else {
+                    for (int b = 0, inPos = inFrame + source * sampleSize; b < sampleSize; b++) {
+                        out[outPos++] = in[inPos + b];
+                    }
+                }
+            }
+        }
+    }
+
+    private void routeInts(final int frames) {
+        final int[] x = mInInts;
+        final int[] y = mOutInts;
+        for (int f = 0, xi = 0, yi = 0; f < frames; f++, xi += mInChannels) {
+            for (int o = 0; o < mOutChannels; o++) {
+                // 0 of 32 bit domain is silence of every integer unit
+                y[yi++] = mRoute[o] < 0 ? 0 : x[xi + mRoute[o]];
+            }
+        }
+    }
+
+    private void routeFloats(final int frames) {
+        final float[] x = mInFloats;
+        final float[] y = mOutFloats;
+        for (int f = 0, xi = 0, yi = 0; f < frames; f++, xi += mInChannels) {
+            for (int o = 0; o < mOutChannels; o++) {
+                y[yi++] = mRoute[o] < 0 ? 0f : x[xi + mRoute[o]];
+            }
+        }
+    }
+
+    private void mix(final int frames) {
+        final float[] x = mInFloats;
+        final float[] y = mOutFloats;
+        final float[] matrix = mMatrix;
+        final int inChannels = mInChannels;
+        for (int f = 0, xi = 0, yi = 0; f < frames; f++, xi += inChannels) {
+            for (int o = 0, row = 0; o < mOutChannels; o++, row += inChannels) {
+                float sum = 0;
+                for (int i = 0; i < inChannels; i++) {
+                    sum += matrix[row + i] * x[xi + i];
+                }
+                y[yi++] = sum;
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.threshold.toolbox;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SerialWorker} on a single thread {@link ScheduledThreadPoolExecutor}, no Android dependency.
+ *
+ * <p> use {@link #newVirtualThreadWorker(String)} to run it on a virtual thread on JDK 21+. </p>
+ */
+public class ExecutorSerialWorker implements SerialWorker {
+
+    private final ScheduledThreadPoolExecutor mExecutor;
+
+    /**
+     * run on a new platform thread, non-daemon just like HandlerThread.
+     *
+     * @param name thread name
+     */
+    public ExecutorSerialWorker(final String name) {
+        this(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, name);
+            }
+        });
+    }
+
+    /**
+     * run on the thread created by threadFactory.
+     *
+     * @param threadFactory creates the only worker thread
+     */
+    public ExecutorSerialWorker(final ThreadFactory threadFactory) {
+        if (null == threadFactory) {
+            throw new IllegalArgumentException("ThreadFactory cannot be null");
+        }
+        mExecutor = new ScheduledThreadPoolExecutor(1, threadFactory,
+                new ScheduledThreadPoolExecutor.DiscardPolicy());
+        // same as Handler quitSafely: delayed tasks not due are dropped
+        mExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * check whether virtual thread available, that is JDK 21+.
+     *
+     * @return true if {@link #newVirtualThreadWorker(String)} works
+     */
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * create worker runs on a virtual thread, found by reflection so this class still builds for java 8.
+     *
+     * @param name thread name
+     * @return the worker
+     * @throws UnsupportedOperationException if virtual thread not supported
+     */
+    public static ExecutorSerialWorker newVirtualThreadWorker(final String name) {
+        final ThreadFactory threadFactory;
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class).invoke(builder, name);
+            final Method factory = builderClass.getMethod("factory");
+            threadFactory = (ThreadFactory) factory.invoke(builder);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("virtual thread not supported", e);
+        }
+        return new ExecutorSerialWorker(threadFactory);
+    }
+
+    @Override
+    public void post(final Runnable task) {
+        mExecutor.execute(task);
+    }
+
+    @Override
+    public void postDelayed(final Runnable task, final long delayMs) {
+        mExecutor.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void quitSafely() {
+        mExecutor.shutdown();
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.threshold.toolbox;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Write file through {@link FileChannel}, no java side buffer.
+ *
+ * <p> use it with direct ByteBuffers (such as regions from {@link RingBuffer#acquireRead(int)}),
+ * data goes to kernel without copy in java heap. unlike {@link FileWriter}, flush is not needed. </p>
+ */
+public class FileChannelWriter implements Closeable {
+
+    private static final String TAG = "FileChannelWriter";
+
+    private final FileOutputStream mOutputStream;
+    private final FileChannel mChannel;
+    private boolean mHasError;
+    private boolean mClosed;
+
+    public FileChannelWriter(final File file) throws FileNotFoundException {
+        if (null == file) {
+            throw new NullPointerException("File cannot be null");
+        }
+        final File parentFile = file.getParentFile();
+        if (null != parentFile && !parentFile.exists()) {
+            if (!parentFile.mkdirs()) {
+                PlatformLog.e(TAG, "failed on mkdirs on " + parentFile.getAbsolutePath());
+            }
+        }
+        try {
+            mOutputStream = new FileOutputStream(file);
+        } catch (FileNotFoundException ex) {
+            PlatformLog.e(TAG, "File not found: " + file.getAbsolutePath(), ex);
+            throw ex;
+        }
+        mChannel = mOutputStream.getChannel();
+    }
+
+    public FileChannelWriter(final String path) throws FileNotFoundException {
+        this(new File(path));
+    }
+
+    private void ensureValidState() {
+        if (mClosed) {
+            throw new IllegalStateException("Channel already closed");
+        }
+        if (mHasError) {
+            throw new IllegalStateException("Channel in error state");
+        }
+    }
+
+    /**
+     * write all remaining data of src to file, src's position is advanced.
+     *
+     * @param src the data to write
+     * @return written len in bytes
+     * @throws IOException if write failed, this writer is closed then
+     */
+    public int write(final ByteBuffer src) throws IOException {
+        ensureValidState();
+        int written = 0;
+        try {
+            while (src.hasRemaining()) {
+                written += mChannel.write(src);
+            }
+        } catch (IOException ex) {
+            handleException("write(ByteBuffer)", ex);
+        }
+        return written;
+    }
+
+    /**
+     * gathering write, write all remaining data of srcs to file in order.
+     *
+     * @param srcs the data to write, each one's position is advanced
+     * @return written len in bytes
+     * @throws IOException if write failed, this writer is closed then
+     */
+    public long write(final ByteBuffer[] srcs) throws IOException {
+        ensureValidState();
+        long written = 0;
+        try {
+            // write(ByteBuffer[]) may return early, skip buffers already written
+            for (int i = 0; i < srcs.length; ) {
+                if (!srcs[i].hasRemaining()) {
+                    i++;
+                    continue;
+                }
+                written += mChannel.write(srcs, i, srcs.length - i);
+            }
+        } catch (IOException ex) {
+            handleException("write(ByteBuffer[])", ex);
+        }
+        return written;
+    }
+
+    public void write(final byte[] buffer, final int offset, final int len) throws IOException {
+        write(ByteBuffer.wrap(buffer, offset, len));
+    }
+
+    /**
+     * force data to storage device, see {@link FileChannel#force(boolean)}.
+     *
+     * @throws IOException if sync failed, this writer is closed then
+     */
+    public void sync() throws IOException {
+        ensureValidState();
+        try {
+            mChannel.force(false);
+        } catch (IOException ex) {
+            handleException("sync", ex);
+        }
+    }
+
+    /**
+     * the underlying channel, for position/size/force.
+     *
+     * @return file channel of this writer
+     */
+    public FileChannel getChannel() {
+        return mChannel;
+    }
+
+    private void handleException(String operation, IOException ex) throws IOException {
+        mHasError = true;
+        PlatformLog.e(TAG, "Error during " + operation + ": " + ex.getMessage(), ex);
+        close();
+        throw ex;
+    }
+
+    @Override
+    public void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        try {
+            mOutputStream.close();
+        } catch (IOException e) {
+            PlatformLog.w(TAG, "Error closing channel: " + e.getMessage());
+        }
+    }
+}
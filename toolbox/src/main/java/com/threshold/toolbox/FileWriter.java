@@ -1,7 +1,5 @@
 package com.threshold.toolbox;
 
-import android.util.Log;
-
 import java.io.*;
 
 public class FileWriter extends OutputStream {
@@ -10,6 +8,7 @@ public class FileWriter extends OutputStream {
     private static final int DEFAULT_BUFFER_SIZE = 8192; // 8KB
 
     private OutputStream mOutputStream;
+    private FileOutputStream mFileOutputStream;
     private boolean mHasError;
     private boolean mClosed;
 
@@ -20,16 +19,16 @@ public class FileWriter extends OutputStream {
         final File parentFile = file.getParentFile();
         if (null != parentFile && !parentFile.exists()) {
             if (!parentFile.mkdirs()) {
-                Log.e(TAG, "failed on mkdirs on " + parentFile.getAbsolutePath());
+                PlatformLog.e(TAG, "failed on mkdirs on " + parentFile.getAbsolutePath());
             }
         }
         final int actualBufferSize = bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE;
         try {
-            mOutputStream = new BufferedOutputStream(
-                    new FileOutputStream(file), actualBufferSize);
+            mFileOutputStream = new FileOutputStream(file);
+            mOutputStream = new BufferedOutputStream(mFileOutputStream, actualBufferSize);
         } catch (FileNotFoundException ex) {
             mHasError = true;
-            Log.e(TAG, "File not found: " + file.getAbsolutePath(), ex);
+            PlatformLog.e(TAG, "File not found: " + file.getAbsolutePath(), ex);
             throw ex;
         }
     }
@@ -84,9 +83,24 @@ public class FileWriter extends OutputStream {
         }
     }
 
+    /**
+     * flush, then force data to storage device, see {@link java.nio.channels.FileChannel#force(boolean)}.
+     *
+     * @throws IOException if sync failed
+     */
+    public void sync() throws IOException {
+        ensureValidState();
+        try {
+            mOutputStream.flush();
+            mFileOutputStream.getChannel().force(false);
+        } catch (IOException ex) {
+            handleException("sync", ex);
+        }
+    }
+
     private void handleException(String operation, IOException ex) throws IOException {
         mHasError = true;
-        Log.e(TAG, "Error during " + operation + ": " + ex.getMessage(), ex);
+        PlatformLog.e(TAG, "Error during " + operation + ": " + ex.getMessage(), ex);
         safeClose();
         throw ex;
     }
@@ -97,7 +111,7 @@ public class FileWriter extends OutputStream {
                 mOutputStream.close();
             }
         } catch (IOException e) {
-            Log.w(TAG, "Error closing stream: " + e.getMessage());
+            PlatformLog.w(TAG, "Error closing stream: " + e.getMessage());
         } finally {
             mOutputStream = null;
         }
@@ -112,7 +126,7 @@ public class FileWriter extends OutputStream {
         try {
             flush();
         } catch (Exception e) {
-            Log.w(TAG, "Error flushing before close", e);
+            PlatformLog.w(TAG, "Error flushing before close", e);
         }
         safeClose();
     }
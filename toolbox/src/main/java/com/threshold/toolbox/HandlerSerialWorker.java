@@ -0,0 +1,40 @@
+package com.threshold.toolbox;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+/**
+ * {@link SerialWorker} on Android {@link HandlerThread}.
+ */
+public class HandlerSerialWorker implements SerialWorker {
+
+    private final HandlerThread mHandlerThread;
+    private final Handler mHandler;
+
+    public HandlerSerialWorker(final String name) {
+        mHandlerThread = new HandlerThread(name);
+        mHandlerThread.start();
+        mHandler = new Handler(mHandlerThread.getLooper());
+    }
+
+    @Override
+    public void post(final Runnable task) {
+        mHandler.post(task);
+    }
+
+    @Override
+    public void postDelayed(final Runnable task, final long delayMs) {
+        mHandler.postDelayed(task, delayMs);
+    }
+
+    @Override
+    public void quitSafely() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            mHandlerThread.quitSafely();
+        } else {
+            mHandlerThread.quit();
+        }
+    }
+
+}
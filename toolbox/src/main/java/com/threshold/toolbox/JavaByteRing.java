@@ -0,0 +1,211 @@
+package com.threshold.toolbox;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+/**
+ * Pure java ring over a pow of 2 byte array, the consumer(read) side is shared here.
+ * <p> producer side is implemented by subclass, it must publish written data by
+ * advancing {@link #mTail} with release semantic (lazySet), then {@link RingSignal#signalReader()}. </p>
+ */
+abstract class JavaByteRing implements ByteRing {
+
+    static final ByteBuffer[] NO_REGION = new ByteBuffer[0];
+
+    final byte[] mBuffer;
+    final int mMask;
+    // published write position, consumer can read data before it
+    final PaddedSequence mTail = new PaddedSequence();
+    // read position, owned by consumer
+    final PaddedSequence mHead = new PaddedSequence();
+    final ByteBuffer mMemory;
+    // wake up the other side which blocked on writeFully/readAtLeast
+    final RingSignal mSignal = new RingSignal();
+    private final ByteBuffer[] mReadRegions;
+    private final ByteBuffer[] mReadRegion;
+
+    /**
+     * init ring with size
+     * <p>the bufferSize should be pow of 2, otherwise it will be aligned to the next pow of 2. </p>
+     *
+     * @param bufferSize capacity of ring in bytes
+     */
+    JavaByteRing(int bufferSize) {
+        if (bufferSize < 2 || bufferSize > (1 << 30)) {
+            throw new IllegalArgumentException(String.format("illegal bufferSize(%d)", bufferSize));
+        }
+        final int capacity = Integer.highestOneBit(bufferSize) == bufferSize ?
+                bufferSize : Integer.highestOneBit(bufferSize) << 1;
+        mBuffer = new byte[capacity];
+        mMask = capacity - 1;
+        mMemory = ByteBuffer.wrap(mBuffer);
+        final ByteBuffer readMemory = mMemory.asReadOnlyBuffer();
+        mReadRegions = new ByteBuffer[]{readMemory, readMemory.duplicate()};
+        mReadRegion = new ByteBuffer[]{mReadRegions[0]};
+    }
+
+    /**
+     * the real capacity of ring
+     *
+     * @return capacity in bytes
+     */
+    public int capacity() {
+        return mBuffer.length;
+    }
+
+    @Override
+    public int availableReadLen() {
+        return (int) (mTail.get() - mHead.get());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return availableReadLen() < 1;
+    }
+
+    @Override
+    public boolean isFull() {
+        return availableWriteLen() < 1;
+    }
+
+    // consumer side: available data, refresh producer position only if cached one is not enough.
+    private int readable(final long head, final int want) {
+        int available = (int) (mHead.mCachedOpposite - head);
+        if (available < want) {
+            mHead.mCachedOpposite = mTail.get();
+            available = (int) (mHead.mCachedOpposite - head);
+        }
+        return Math.min(available, want);
+    }
+
+    private int copyOut(final byte[] buffer, final int offset, final int len, final boolean isPeek) {
+        final long head = mHead.get();
+        final int n = readable(head, len);
+        if (n < 1) {
+            return 0;
+        }
+        final int index = (int) head & mMask;
+        final int firstLen = Math.min(n, mBuffer.length - index);
+        System.arraycopy(mBuffer, index, buffer, offset, firstLen);
+        System.arraycopy(mBuffer, 0, buffer, offset + firstLen, n - firstLen);
+        if (!isPeek) {
+            mHead.lazySet(head + n);
+            mSignal.signalWriters();
+        }
+        return n;
+    }
+
+    private int copyOut(final ByteBuffer dst, final boolean isPeek) {
+        if (dst.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        final long head = mHead.get();
+        final int n = readable(head, dst.remaining());
+        if (n < 1) {
+            return 0;
+        }
+        final int index = (int) head & mMask;
+        final int firstLen = Math.min(n, mBuffer.length - index);
+        dst.put(mBuffer, index, firstLen);
+        dst.put(mBuffer, 0, n - firstLen);
+        if (!isPeek) {
+            mHead.lazySet(head + n);
+            mSignal.signalWriters();
+        }
+        return n;
+    }
+
+    @Override
+    public int read(final byte[] buffer, int offset, int len) {
+        return copyOut(buffer, offset, len, false);
+    }
+
+    @Override
+    public int read(final byte[] buffer) {
+        return read(buffer, 0, buffer.length);
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) {
+        return copyOut(dst, false);
+    }
+
+    @Override
+    public int readAtLeast(final byte[] buffer, int min, long timeoutMs) throws InterruptedException {
+        return mSignal.readAtLeast(this, buffer, min, timeoutMs);
+    }
+
+    @Override
+    public int writeFully(final byte[] data, int offset, int len, long timeoutMs) throws InterruptedException {
+        return mSignal.writeFully(this, false, data, offset, len, timeoutMs);
+    }
+
+    @Override
+    public int discard(int len) {
+        final long head = mHead.get();
+        final int n = readable(head, len);
+        if (n > 0) {
+            mHead.lazySet(head + n);
+            mSignal.signalWriters();
+        }
+        return Math.max(n, 0);
+    }
+
+    @Override
+    public int peek(final byte[] buffer, int offset, int len) {
+        return copyOut(buffer, offset, len, true);
+    }
+
+    @Override
+    public int peek(final byte[] buffer) {
+        return peek(buffer, 0, buffer.length);
+    }
+
+    @Override
+    public int peek(final ByteBuffer dst) {
+        return copyOut(dst, true);
+    }
+
+    static ByteBuffer[] mapRegion(final ByteBuffer[] regions, final ByteBuffer[] region,
+                                  final int index, final int len) {
+        if (len < 1) {
+            return NO_REGION;
+        }
+        final int firstLen = Math.min(len, regions[0].capacity() - index);
+        setRegion(regions[0], index, firstLen);
+        if (firstLen == len) {
+            return region;
+        }
+        setRegion(regions[1], 0, len - firstLen);
+        return regions;
+    }
+
+    private static void setRegion(final ByteBuffer view, final int offset, final int len) {
+        view.clear();
+        view.position(offset);
+        view.limit(offset + len);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p> the returned regions are read-only views of ring memory. </p>
+     */
+    @Override
+    public ByteBuffer[] acquireRead(int len) {
+        final long head = mHead.get();
+        return mapRegion(mReadRegions, mReadRegion, (int) head & mMask, readable(head, len));
+    }
+
+    @Override
+    public int releaseRead(int len) {
+        return discard(len);
+    }
+
+    /**
+     * nothing to free for pure java ring, memory is recycled by GC.
+     */
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,250 @@
+package com.threshold.toolbox;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Append file through memory mapping, no writer thread at all.
+ *
+ * <p> file is extended and mapped region by region, write copies data into the mapping on caller thread,
+ * kernel writes dirty pages back in background. on close the file is truncated to the actual length. </p>
+ * <p> unlike {@link AsyncFileWriter}, write never waits for disk and nothing is lost on process crash
+ * (only on power loss, see {@link #sync()}), but page faults on first touch of each page may stall caller.
+ * file size is a multiple of region size until closed. </p>
+ * <p> a full region is unmapped at once where the runtime allows(Android NioUtils, JDK 9+ Unsafe),
+ * otherwise it is unmapped by GC, and long captures may pile up mappings before GC runs.
+ * that matters on 32-bit process(armeabi-v7a) which has only ~3GB address space,
+ * so the default region size is smaller there, keep regionSize small if you set it on 32-bit. </p>
+ * <p> thread-safe, data of one write keeps contiguous. </p>
+ */
+public class MappedAppendWriter extends OutputStream {
+
+    private static final String TAG = "MappedAppendWriter";
+    private static final int MIN_REGION_SIZE = 4096;
+    private static final int DEFAULT_REGION_SIZE = is64Bit() ? 8 * 1024 * 1024 : 1024 * 1024;
+    // explicit unmap of a region, null if runtime not support it
+    private static final Method UNMAP;
+    private static final Object UNMAP_TARGET;
+
+    static {
+        Method unmap = null;
+        Object target = null;
+        try {
+            if (PlatformLog.IS_ANDROID) {
+                unmap = Class.forName("java.nio.NioUtils").getMethod("freeDirectBuffer", ByteBuffer.class);
+            } else {
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                // JDK 9+ only
+                unmap = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                target = field.get(null);
+            }
+        } catch (Exception e) {
+            unmap = null;
+            target = null;
+        }
+        UNMAP = unmap;
+        UNMAP_TARGET = target;
+    }
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final int mRegionSize;
+    // guarded by this
+    private MappedByteBuffer mRegion;
+    private long mRegionStart;
+    private volatile long mPosition;
+    private volatile boolean mClosed;
+
+    public MappedAppendWriter(final String path) throws IOException {
+        this(new File(path), DEFAULT_REGION_SIZE);
+    }
+
+    public MappedAppendWriter(final File file) throws IOException {
+        this(file, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * @param file       file to write, old content is truncated
+     * @param regionSize file is extended and mapped in this size,
+     *                   bigger one means less remap(mmap/munmap) but more virtual memory.
+     *                   default is 8MB, 1MB on 32-bit process
+     * @throws IOException if failed on open or map file
+     */
+    public MappedAppendWriter(final File file, final int regionSize) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        if (regionSize < MIN_REGION_SIZE) {
+            throw new IllegalArgumentException("Region size too small (min " +
+                    MIN_REGION_SIZE + " bytes)");
+        }
+        final File parentFile = file.getParentFile();
+        if (null != parentFile && !parentFile.exists()) {
+            if (!parentFile.mkdirs()) {
+                PlatformLog.e(TAG, "failed on mkdirs on " + parentFile.getAbsolutePath());
+            }
+        }
+        try {
+            mFile = new RandomAccessFile(file, "rw");
+        } catch (FileNotFoundException ex) {
+            PlatformLog.e(TAG, "File not found: " + file.getAbsolutePath(), ex);
+            throw ex;
+        }
+        mRegionSize = regionSize;
+        mChannel = mFile.getChannel();
+        try {
+            mChannel.truncate(0);
+            mRegion = mChannel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+        } catch (IOException ex) {
+            PlatformLog.e(TAG, "failed on map " + file.getAbsolutePath(), ex);
+            closeQuietly();
+            throw ex;
+        }
+    }
+
+    private void checkCloseStatus() {
+        if (mClosed) {
+            throw new IllegalStateException("MappedAppendWriter is closed");
+        }
+    }
+
+    private static boolean is64Bit() {
+        final String arch = System.getProperty("os.arch");
+        return null == arch || arch.contains("64");
+    }
+
+    // release mapping now, region must not be touched after this. GC does it if failed
+    private static void unmap(final MappedByteBuffer region) {
+        if (null == UNMAP || null == region) {
+            return;
+        }
+        try {
+            UNMAP.invoke(UNMAP_TARGET, region);
+        } catch (Exception e) {
+            PlatformLog.w(TAG, "failed on unmap region: " + e.getMessage());
+        }
+    }
+
+    // map next region once current one is full, old one is unmapped first so only one region lives
+    private void nextRegion() throws IOException {
+        mRegionStart += mRegionSize;
+        final MappedByteBuffer full = mRegion;
+        mRegion = null;
+        unmap(full);
+        mRegion = mChannel.map(FileChannel.MapMode.READ_WRITE, mRegionStart, mRegionSize);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] data) throws IOException {
+        write(data, 0, data.length);
+    }
+
+    @Override
+    public synchronized void write(final byte[] data, int offset, int len) throws IOException {
+        checkCloseStatus();
+        if (data == null) {
+            throw new NullPointerException("Data cannot be null");
+        }
+        if (offset < 0 || len < 0 || offset + len > data.length) {
+            throw new IndexOutOfBoundsException("Invalid offset/length");
+        }
+        while (len > 0) {
+            if (!mRegion.hasRemaining()) {
+                nextRegion();
+            }
+            final int n = Math.min(len, mRegion.remaining());
+            mRegion.put(data, offset, n);
+            offset += n;
+            len -= n;
+            mPosition += n;
+        }
+    }
+
+    /**
+     * write all remaining data of src, src's position is advanced.
+     *
+     * @param src the data to write
+     * @throws IOException if failed on map next region
+     */
+    public synchronized void write(final ByteBuffer src) throws IOException {
+        checkCloseStatus();
+        final int srcLimit = src.limit();
+        while (src.hasRemaining()) {
+            if (!mRegion.hasRemaining()) {
+                nextRegion();
+            }
+            final int n = Math.min(src.remaining(), mRegion.remaining());
+            src.limit(src.position() + n);
+            mRegion.put(src);
+            src.limit(srcLimit);
+            mPosition += n;
+        }
+    }
+
+    /**
+     * nothing to flush, data is visible to other readers of file once write returned.
+     */
+    @Override
+    public void flush() {
+        checkCloseStatus();
+    }
+
+    /**
+     * force data to storage device, see {@link MappedByteBuffer#force()}.
+     * <p> current region is forced, then the file(fsync also writes back dirty pages of
+     * regions mapped before on linux). </p>
+     *
+     * @throws IOException if failed on sync
+     */
+    public synchronized void sync() throws IOException {
+        checkCloseStatus();
+        mRegion.force();
+        mChannel.force(false);
+    }
+
+    /**
+     * @return bytes written, that is the file length after close
+     */
+    public long length() {
+        return mPosition;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        final MappedByteBuffer region = mRegion;
+        mRegion = null;
+        unmap(region);
+        try {
+            mChannel.truncate(mPosition);
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            mFile.close();
+        } catch (IOException e) {
+            PlatformLog.w(TAG, "Error closing file: " + e.getMessage());
+        }
+    }
+}
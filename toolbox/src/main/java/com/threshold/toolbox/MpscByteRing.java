@@ -0,0 +1,132 @@
+package com.threshold.toolbox;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pure java Multi Producer(write) and One Consumer(read) ring, no global lock on write.
+ *
+ * <p> every write is a record: producer claims it's slot by CAS, copies data,
+ * then commits in claim order. so the consumer always sees contiguous and ordered records,
+ * records from different producers never interleave. </p>
+ * <p> write is all-or-nothing: it returns the whole len or 0 if ring has not enough space.
+ * a record can't be longer than {@link #capacity()}. </p>
+ * <p> zero-copy write is not offered, it is not a {@link ZeroCopyByteRing}:
+ * a reserved slot can't be shrunk on commit once other producers claimed after it. </p>
+ * <p> not all of method are thread-safe(such as clear),
+ * read thread-safe only in this condition: 1 consumer </p>
+ */
+public class MpscByteRing extends JavaByteRing {
+
+    // claimed write position, advanced by producers with CAS. mTail is the published one.
+    private final PaddedSequence mClaim = new PaddedSequence();
+
+    /**
+     * init ring with size
+     * <p>the bufferSize should be pow of 2, otherwise it will be aligned to the next pow of 2. </p>
+     *
+     * @param bufferSize capacity of ring in bytes
+     */
+    public MpscByteRing(int bufferSize) {
+        super(bufferSize);
+    }
+
+    @Override
+    public int availableWriteLen() {
+        return mBuffer.length - (int) (mClaim.get() - mHead.get());
+    }
+
+    /**
+     * claim slot for len bytes
+     *
+     * @return start position of slot, -1 if ring has not enough space
+     */
+    private long claim(final int len) {
+        if (len > mBuffer.length) {
+            throw new IllegalArgumentException(String.format(
+                    "record len(%d) exceed ring capacity(%d)", len, mBuffer.length));
+        }
+        long start;
+        do {
+            start = mClaim.get();
+            if (mBuffer.length - (int) (start - mHead.get()) < len) {
+                return -1;
+            }
+        } while (!mClaim.compareAndSet(start, start + len));
+        return start;
+    }
+
+    /**
+     * commit slot, slots are published in claim order,
+     * so wait producers which claimed before us to publish theirs first.
+     */
+    private void publish(final long start, final int len) {
+        while (mTail.get() != start) {
+            Thread.yield();
+        }
+        mTail.lazySet(start + len);
+        mSignal.signalReader();
+    }
+
+    @Override
+    public int write(final byte[] data, int offset, int len) {
+        // check before claim: a claimed slot must be published, or later producers wait for it forever
+        if (offset < 0 || len < 0 || offset + len > data.length) {
+            throw new IndexOutOfBoundsException(String.format("offset(%d) len(%d) out of %d bytes",
+                    offset, len, data.length));
+        }
+        if (len < 1) {
+            return 0;
+        }
+        final long start = claim(len);
+        if (start < 0) {
+            return 0;
+        }
+        final int index = (int) start & mMask;
+        final int firstLen = Math.min(len, mBuffer.length - index);
+        System.arraycopy(data, offset, mBuffer, index, firstLen);
+        System.arraycopy(data, offset + firstLen, mBuffer, 0, len - firstLen);
+        publish(start, len);
+        return len;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p> the record is written as a whole, so it waits until there is space for all of it. </p>
+     */
+    @Override
+    public int writeFully(final byte[] data, int offset, int len, long timeoutMs) throws InterruptedException {
+        return mSignal.writeFully(this, true, data, offset, len, timeoutMs);
+    }
+
+    @Override
+    public int write(final byte[] data) {
+        return write(data, 0, data.length);
+    }
+
+    @Override
+    public int write(final ByteBuffer src) {
+        final int len = src.remaining();
+        if (len < 1) {
+            return 0;
+        }
+        final long start = claim(len);
+        if (start < 0) {
+            return 0;
+        }
+        final int index = (int) start & mMask;
+        final int firstLen = Math.min(len, mBuffer.length - index);
+        src.get(mBuffer, index, firstLen);
+        src.get(mBuffer, 0, len - firstLen);
+        publish(start, len);
+        return len;
+    }
+
+    @Override
+    public void clear() {
+        mHead.set(0);
+        mClaim.set(0);
+        mTail.set(0);
+        mHead.mCachedOpposite = 0;
+    }
+
+}
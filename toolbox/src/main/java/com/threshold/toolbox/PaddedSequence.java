@@ -0,0 +1,48 @@
+package com.threshold.toolbox;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * ring position, padded on both sides to it's own cache line so producer and consumer do not false share.
+ * <p> fields of superclass are laid out first, so the padding before value lives in a superclass,
+ * otherwise an object allocated just before this one could still share the line. </p>
+ * <p> it also caches the last seen position of the opposite side,
+ * which should only be touched by the owner thread. </p>
+ */
+@SuppressWarnings("unused")
+final class PaddedSequence extends PaddedSequenceValue {
+
+    private static final AtomicLongFieldUpdater<PaddedSequenceValue> VALUE =
+            AtomicLongFieldUpdater.newUpdater(PaddedSequenceValue.class, "mValue");
+
+    long mCachedOpposite;
+    long p1, p2, p3, p4, p5, p6, p7;
+
+    long get() {
+        return mValue;
+    }
+
+    void set(final long value) {
+        mValue = value;
+    }
+
+    /**
+     * store with release semantic only, cheaper than {@link #set(long)}
+     */
+    void lazySet(final long value) {
+        VALUE.lazySet(this, value);
+    }
+
+    boolean compareAndSet(final long expect, final long update) {
+        return VALUE.compareAndSet(this, expect, update);
+    }
+}
+
+@SuppressWarnings("unused")
+abstract class PaddedSequenceLeftPadding {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class PaddedSequenceValue extends PaddedSequenceLeftPadding {
+    volatile long mValue;
+}
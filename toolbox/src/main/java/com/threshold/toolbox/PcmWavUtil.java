@@ -16,6 +16,7 @@ public class PcmWavUtil {
 
     /**
      * pcm 转 wav
+     * <p> whole pcm is copied in memory, for long recording use {@link WavFileWriter} </p>
      *
      * @param pcmData      pcm原始数据
      * @param numChannels  声道设置, mono = 1, stereo = 2
@@ -0,0 +1,55 @@
+package com.threshold.toolbox;
+
+import android.util.Log;
+
+/**
+ * log to logcat on Android, or to stderr on plain JVM (where android.util.Log is absent or not mocked).
+ * <p> for classes which should also work on desktop/server JVM, such as {@link AsyncFileWriter}. </p>
+ */
+final class PlatformLog {
+
+    static final boolean IS_ANDROID = isAndroid();
+
+    private PlatformLog() {
+        throw new IllegalStateException("no instance");
+    }
+
+    private static boolean isAndroid() {
+        // ART reports "Dalvik" as well
+        final String vmName = System.getProperty("java.vm.name");
+        return null != vmName && vmName.contains("Dalvik");
+    }
+
+    static void w(final String tag, final String msg) {
+        if (IS_ANDROID) {
+            Log.w(tag, msg);
+        } else {
+            System.err.println("W/" + tag + ": " + msg);
+        }
+    }
+
+    static void w(final String tag, final String msg, final Throwable tr) {
+        if (IS_ANDROID) {
+            Log.w(tag, msg, tr);
+        } else {
+            System.err.println("W/" + tag + ": " + msg + ": " + tr);
+        }
+    }
+
+    static void e(final String tag, final String msg) {
+        if (IS_ANDROID) {
+            Log.e(tag, msg);
+        } else {
+            System.err.println("E/" + tag + ": " + msg);
+        }
+    }
+
+    static void e(final String tag, final String msg, final Throwable tr) {
+        if (IS_ANDROID) {
+            Log.e(tag, msg, tr);
+        } else {
+            System.err.println("E/" + tag + ": " + msg + ": " + tr);
+        }
+    }
+
+}
@@ -0,0 +1,324 @@
+package com.threshold.toolbox;
+
+import java.util.Arrays;
+
+/**
+ * Polyphase FIR resampler for any ratio L/M, such as 44.1k -> 16k.
+ *
+ * <p> a Kaiser windowed sinc lowpass is designed once for the reduced ratio and split into L phases,
+ * each output sample costs one short dot product of its phase instead of a full windowed sinc,
+ * and the cutoff follows the lower Nyquist, so down sampling is anti-aliased. </p>
+ * <p> history and phase are carried across calls, so feeding 10 ms blocks gives the same output
+ * as feeding the whole stream at once, with {@link #getDelayFrames()} of latency. </p>
+ * <p> supports {@link Resample.SampleUnit#INT16}, {@link Resample.SampleUnit#INT24},
+ * {@link Resample.SampleUnit#INT32} and {@link Resample.SampleUnit#FLOAT32},
+ * computes in float(INT32 keeps 24 bits of precision).
+ * not thread-safe, allocates nothing after construction. </p>
+ */
+public class PolyphaseResampler {
+
+    private static final int DEFAULT_HALF_TAPS = 16;
+    private static final float DEFAULT_ROLLOFF = 0.92f;
+    // ~80dB stopband attenuation
+    private static final double KAISER_BETA = 7.857;
+    private static final int MAX_BANK_SIZE = 1 << 20;
+    // input frames decoded into history per round
+    private static final int SEGMENT_FRAMES = 1024;
+
+    private final int mInSampleRate;
+    private final int mOutSampleRate;
+    private final int mChannels;
+    private final Resample.SampleUnit mSampleUnit;
+    private final int mUp;
+    private final int mDown;
+    private final int mTaps;
+    // phase p occupies [p * taps, (p + 1) * taps), taps reversed so dot product walks history forward
+    private final float[] mBank;
+    private final float[][] mHistory;
+    private final float[][] mSegmentOut;
+    // history[ch][0, mFill) is valid, next output convolves history[ch][mIndex - taps + 1, mIndex]
+    private int mFill;
+    private int mIndex;
+    private int mPhase;
+
+    public PolyphaseResampler(final int inSampleRate, final int outSampleRate, final int channels,
+                              final Resample.SampleUnit sampleUnit) {
+        this(inSampleRate, outSampleRate, channels, sampleUnit, DEFAULT_HALF_TAPS);
+    }
+
+    /**
+     * @param inSampleRate  输入采样率
+     * @param outSampleRate 输出采样率
+     * @param channels      声道数
+     * @param sampleUnit    采样数据类型, INT16/INT24/INT32/FLOAT32
+     * @param halfTaps      zero crossings on each side of the sinc, more is sharper and slower
+     */
+    public PolyphaseResampler(final int inSampleRate, final int outSampleRate, final int channels,
+                              final Resample.SampleUnit sampleUnit, final int halfTaps) {
+        if (inSampleRate <= 0 || outSampleRate <= 0) {
+            throw new IllegalArgumentException("Sample rates must be positive");
+        }
+        if (channels <= 0) {
+            throw new IllegalArgumentException("Channel count must be positive");
+        }
+        if (sampleUnit == null || Resample.SampleUnit.INT8 == sampleUnit) {
+            throw new IllegalArgumentException("Unsupported sample unit: " + sampleUnit);
+        }
+        if (halfTaps <= 0) {
+            throw new IllegalArgumentException("halfTaps must be positive");
+        }
+        mInSampleRate = inSampleRate;
+        mOutSampleRate = outSampleRate;
+        mChannels = channels;
+        mSampleUnit = sampleUnit;
+        final int gcd = gcd(inSampleRate, outSampleRate);
+        mUp = outSampleRate / gcd;
+        mDown = inSampleRate / gcd;
+        // down sampling narrows the cutoff, widen the filter to keep the transition band sharp
+        final int stretch = (mDown + mUp - 1) / mUp;
+        mTaps = 2 * halfTaps * stretch;
+        if ((long) mUp * mTaps > MAX_BANK_SIZE) {
+            throw new IllegalArgumentException(
+                    String.format("Ratio too complex: %d -> %d needs %d phases", inSampleRate, outSampleRate, mUp));
+        }
+        mBank = designBank(mUp, mDown, mTaps);
+        mHistory = new float[channels][mTaps - 1 + SEGMENT_FRAMES];
+        mSegmentOut = new float[channels][getMaxOutputFrames(SEGMENT_FRAMES)];
+        reset();
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            final int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static double besselI0(final double x) {
+        double sum = 1, term = 1;
+        for (int k = 1; k < 50 && term > 1e-12 * sum; k++) {
+            final double t = x / (2 * k);
+            term *= t * t;
+            sum += term;
+        }
+        return sum;
+    }
+
+    private static float[] designBank(final int up, final int down, final int taps) {
+        final int length = up * taps;
+        // cutoff in cycles per sample at the up sampled rate
+        final double cutoff = DEFAULT_ROLLOFF * 0.5 / Math.max(up, down);
+        final double center = (length - 1) / 2.0;
+        final double i0Beta = besselI0(KAISER_BETA);
+        final float[] bank = new float[length];
+        for (int n = 0; n < length; n++) {
+            final double x = n - center;
+            final double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+            final double r = x / center;
+            final double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - r * r))) / i0Beta;
+            // gain up compensates zero stuffing
+            final int phase = n % up;
+            final int tap = n / up;
+            bank[phase * taps + (taps - 1 - tap)] = (float) (up * sinc * window);
+        }
+        return bank;
+    }
+
+    /**
+     * clear history and phase, as if newly created.
+     */
+    public void reset() {
+        for (float[] history : mHistory) {
+            Arrays.fill(history, 0f);
+        }
+        mFill = mTaps - 1;
+        mIndex = mTaps - 1;
+        mPhase = 0;
+    }
+
+    public int getInSampleRate() {
+        return mInSampleRate;
+    }
+
+    public int getOutSampleRate() {
+        return mOutSampleRate;
+    }
+
+    /**
+     * @return latency of filter in output frames, may be fractional
+     */
+    public double getDelayFrames() {
+        return ((double) mUp * mTaps - 1) / 2 / mDown;
+    }
+
+    /**
+     * @param inFrames input frames of one call
+     * @return max output frames of that call
+     */
+    public int getMaxOutputFrames(final int inFrames) {
+        return (int) (((long) inFrames * mUp + mDown - 1) / mDown);
+    }
+
+    /**
+     * resample interleaved PCM.
+     *
+     * @param inBuffer  输入音频缓冲区, bufferUsed should be whole frames
+     * @param outBuffer 输出音频缓冲区, capacity should hold {@link #getMaxOutputFrames(int)} frames
+     * @return frames written to outBuffer, bufferUsed of it is set
+     */
+    public int process(final BufferWrapper inBuffer, final BufferWrapper outBuffer) {
+        if (inBuffer == null || outBuffer == null) {
+            throw new IllegalArgumentException("Input and output buffers cannot be null");
+        }
+        final int sampleSize = mSampleUnit.getBytesPerSample();
+        final int frameBytes = sampleSize * mChannels;
+        final int inFrames = inBuffer.getBufferUsed() / frameBytes;
+        if ((long) getMaxOutputFrames(inFrames) * frameBytes > outBuffer.getCapacity()) {
+            throw new IllegalArgumentException("Output buffer too small, need frames: " +
+                    getMaxOutputFrames(inFrames));
+        }
+        final byte[] inArray = inBuffer.getBuffer();
+        final byte[] outArray = outBuffer.getBuffer();
+        int outFrames = 0;
+        for (int done = 0; done < inFrames; ) {
+            final int n = Math.min(SEGMENT_FRAMES, inFrames - done);
+            for (int ch = 0; ch < mChannels; ch++) {
+                decode(inArray, done * frameBytes + ch * sampleSize, frameBytes, mHistory[ch], mFill, n);
+            }
+            mFill += n;
+            done += n;
+            final int produced = filter(mSegmentOut, 0);
+            for (int ch = 0; ch < mChannels; ch++) {
+                encode(mSegmentOut[ch], produced, outArray, outFrames * frameBytes + ch * sampleSize, frameBytes);
+            }
+            outFrames += produced;
+        }
+        outBuffer.setBufferUsed(outFrames * frameBytes);
+        return outFrames;
+    }
+
+    /**
+     * resample planar float PCM, full scale is [-1, 1].
+     *
+     * @param in        input, in[ch][inOffset, inOffset + inFrames)
+     * @param inOffset  offset of input frames
+     * @param inFrames  input frames
+     * @param out       output, should hold {@link #getMaxOutputFrames(int)} frames after outOffset
+     * @param outOffset offset of output frames
+     * @return frames written to out
+     */
+    public int process(final float[][] in, final int inOffset, final int inFrames,
+                       final float[][] out, final int outOffset) {
+        if (in.length < mChannels || out.length < mChannels) {
+            throw new IllegalArgumentException("Channel count mismatch");
+        }
+        int outFrames = 0;
+        for (int done = 0; done < inFrames; ) {
+            final int n = Math.min(SEGMENT_FRAMES, inFrames - done);
+            for (int ch = 0; ch < mChannels; ch++) {
+                System.arraycopy(in[ch], inOffset + done, mHistory[ch], mFill, n);
+            }
+            mFill += n;
+            done += n;
+            outFrames += filter(out, outOffset + outFrames);
+        }
+        return outFrames;
+    }
+
+    // emit all outputs available in history, then drop history no longer needed
+    private int filter(final float[][] out, final int outOffset) {
+        final int taps = mTaps;
+        final int up = mUp;
+        final int down = mDown;
+        final float[] bank = mBank;
+        int count = 0;
+        int index = mIndex;
+        int phase = mPhase;
+        for (int ch = 0; ch < mChannels; ch++) {
+            final float[] x = mHistory[ch];
+            final float[] y = out[ch];
+            index = mIndex;
+            phase = mPhase;
+            count = 0;
+            while (index < mFill) {
+                final int start = index - taps + 1;
+                final int coef = phase * taps;
+                float sum = 0;
+                for (int k = 0; k < taps; k++) {
+                    sum += bank[coef + k] * x[start + k];
+                }
+                y[outOffset + count++] = sum;
+                phase += down;
+                index += phase / up;
+                phase %= up;
+            }
+        }
+        mPhase = phase;
+        // keep taps - 1 frames before next index
+        final int shift = Math.min(index - taps + 1, mFill);
+        if (shift > 0) {
+            for (int ch = 0; ch < mChannels; ch++) {
+                System.arraycopy(mHistory[ch], shift, mHistory[ch], 0, mFill - shift);
+            }
+            mFill -= shift;
+            index -= shift;
+        }
+        mIndex = index;
+        return count;
+    }
+
+    private void decode(final byte[] src, int offset, final int stride, final float[] dst,
+                        final int dstOffset, final int n) {
+        switch (mSampleUnit) {
+            case INT16:
+                for (int i = 0; i < n; i++, offset += stride) {
+                    dst[dstOffset + i] = Resample.readInt16LE(src, offset) * (1f / 32768);
+                }
+                break;
+            case INT24:
+                for (int i = 0; i < n; i++, offset += stride) {
+                    dst[dstOffset + i] = Resample.readInt24LE(src, offset) * (1f / 8388608);
+                }
+                break;
+            case INT32:
+                for (int i = 0; i < n; i++, offset += stride) {
+                    dst[dstOffset + i] = Resample.readInt32LE(src, offset) * (1f / 2147483648f);
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++, offset += stride) {
+                    dst[dstOffset + i] = Resample.readFloat32LE(src, offset);
+                }
+                break;
+        }
+    }
+
+    private void encode(final float[] src, final int n, final byte[] dst, int offset, final int stride) {
+        switch (mSampleUnit) {
+            case INT16:
+                for (int i = 0; i < n; i++, offset += stride) {
+                    final int value = Math.round(src[i] * 32768);
+                    Resample.writeInt16LE(dst, offset,
+                            (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value)));
+                }
+                break;
+            case INT24:
+                for (int i = 0; i < n; i++, offset += stride) {
+                    Resample.writeInt24LE(dst, offset, Resample.clampToInt24(Math.round(src[i] * 8388608)));
+                }
+                break;
+            case INT32:
+                for (int i = 0; i < n; i++, offset += stride) {
+                    Resample.writeInt32LE(dst, offset, Resample.clampToInt32(Math.round(src[i] * 2147483648.0)));
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++, offset += stride) {
+                    Resample.writeFloat32LE(dst, offset, src[i]);
+                }
+                break;
+        }
+    }
+}
@@ -11,6 +11,7 @@ public class Resample {
     public enum SampleUnit {
         INT8(1, "8-bit integer"),
         INT16(2, "16-bit integer"),
+        INT24(3, "24-bit integer, packed"),
         INT32(4, "32-bit integer"),
         FLOAT32(4, "32-bit float");
 
@@ -34,6 +35,7 @@ public class Resample {
 
     /**
      * 降采样
+     * <p> drops samples without anti-alias filter, see {@link PolyphaseResampler} for any ratio with filter </p>
      *
      * @param inBuffer      输入音频缓冲区
      * @param inChannels    输入声道数
@@ -169,6 +171,8 @@ public class Resample {
 
     /**
      * 升采样 - 线性插值法
+     * <p> INT16/INT24/FLOAT32 are interpolated in planar float, which is exact for them.
+     * INT32 is interpolated in double straight on bytes, so all 32 bits are kept. </p>
      *
      * @param inBuffer      输入音频缓冲区
      * @param inChannels    输入声道数
@@ -218,14 +222,13 @@ public class Resample {
             case INT8:
                 upSampleLinearInt8(inBuffer, outBuffer, inChannels, inSamples, upRatio, onePointByteLen);
                 break;
-            case INT16:
-                upSampleLinearInt16(inBuffer, outBuffer, inChannels, inSamples, upRatio, onePointByteLen);
-                break;
             case INT32:
                 upSampleLinearInt32(inBuffer, outBuffer, inChannels, inSamples, upRatio, onePointByteLen);
                 break;
+            case INT16:
+            case INT24:
             case FLOAT32:
-                upSampleLinearFloat32(inBuffer, outBuffer, inChannels, inSamples, upRatio, onePointByteLen);
+                upSampleLinearPlanar(inBuffer, outBuffer, inChannels, inSamples, upRatio, inSampleUnit);
                 break;
             default:
                 throw new IllegalArgumentException("Unsupported sample unit: " + inSampleUnit);
@@ -284,9 +287,10 @@ public class Resample {
     }
 
     /**
-     * 16位整数线性插值升采样
+     * 32位整数线性插值升采样
+     * <p> float keeps only 24 bits, so it is computed in double without planar scratch. </p>
      */
-    private static void upSampleLinearInt16(final BufferWrapper inBuffer,
+    private static void upSampleLinearInt32(final BufferWrapper inBuffer,
                                             final BufferWrapper outBuffer,
                                             final int inChannels,
                                             final int inSamples,
@@ -294,146 +298,319 @@ public class Resample {
                                             final int onePointByteLen) {
         final byte[] inArray = inBuffer.getBuffer();
         final byte[] outArray = outBuffer.getBuffer();
-        final int maxOutBytes = outBuffer.getCapacity();
-        int outBufferIndex = 0;
-
+        final int outSamples = Math.min((inSamples - 1) * upRatio, outBuffer.getCapacity() / onePointByteLen);
         for (int ch = 0; ch < inChannels; ch++) {
-            for (int i = 0; i < inSamples - 1; i++) {
-                // 读取当前和下一个采样点
-                final int inIndex1 = i * onePointByteLen + ch * 2;
-                final int inIndex2 = (i + 1) * onePointByteLen + ch * 2;
+            for (int o = 0; o < outSamples; o++) {
+                final int i = o / upRatio;
+                final int j = o - i * upRatio;
+                final double t = (double) j / upRatio;
+                final int inIndex = i * onePointByteLen + ch * 4;
+                final int sample1 = readInt32LE(inArray, inIndex);
+                final int sample2 = readInt32LE(inArray, inIndex + onePointByteLen);
+                final long interpolated = Math.round(sample1 * (1 - t) + sample2 * t);
+                writeInt32LE(outArray, o * onePointByteLen + ch * 4, clampToInt32(interpolated));
+            }
+        }
+        outBuffer.setBufferUsed(outSamples * onePointByteLen);
+    }
 
-                final short sample1 = readInt16LE(inArray, inIndex1);
-                final short sample2 = readInt16LE(inArray, inIndex2);
+    /**
+     * 16/24位整数及32位浮点数线性插值升采样
+     * <p> deinterleave once to planar float, interpolate per channel, interleave once. </p>
+     */
+    private static void upSampleLinearPlanar(final BufferWrapper inBuffer,
+                                             final BufferWrapper outBuffer,
+                                             final int inChannels,
+                                             final int inSamples,
+                                             final int upRatio,
+                                             final SampleUnit sampleUnit) {
+        final int onePointByteLen = sampleUnit.getBytesPerSample() * inChannels;
+        final int outSamples = Math.min((inSamples - 1) * upRatio, outBuffer.getCapacity() / onePointByteLen);
+        final int chunk = planarChunk(upRatio);
+        final PlanarScratch scratch = PlanarScratch.get(inChannels, chunk + 1, chunk * upRatio);
+        // chunk i interpolates in[i, i + n], the last input sample of a chunk is the first of next one
+        for (int i = 0; i * upRatio < outSamples; i += chunk) {
+            final int n = Math.min(chunk, inSamples - 1 - i);
+            deinterleave(inBuffer.getBuffer(), i * onePointByteLen, n + 1, inChannels, sampleUnit, scratch.mIn);
+            upSampleLinear(scratch.mIn, n + 1, inChannels, upRatio, scratch.mOut);
+            interleave(scratch.mOut, Math.min(n * upRatio, outSamples - i * upRatio), inChannels, sampleUnit,
+                    outBuffer.getBuffer(), i * upRatio * onePointByteLen);
+        }
+        outBuffer.setBufferUsed(outSamples * onePointByteLen);
+    }
 
-                // 线性插值
-                for (int j = 0; j < upRatio; j++) {
-                    final float t = (float) j / upRatio;
-                    final short interpolated = (short) Math.round(sample1 * (1 - t) + sample2 * t);
+    // output samples(每声道) per round of planar up sampling, so thread local scratch stays small
+    private static final int PLANAR_CHUNK_OUT_SAMPLES = 4096;
 
-                    // 计算输出位置
-                    final int outIndex = (i * upRatio + j) * onePointByteLen + ch * 2;
+    // input intervals per round
+    private static int planarChunk(final int upRatio) {
+        return Math.max(1, PLANAR_CHUNK_OUT_SAMPLES / upRatio);
+    }
 
-                    // 检查输出缓冲区边界
-                    if (outIndex + 2 > maxOutBytes) {
-                        break;
-                    }
+    /**
+     * planar buffers of one thread, grow on demand, so 10 ms blocks allocate nothing.
+     * <p> callers work in chunks of {@link #planarChunk(int)}, a huge input not pins huge planes. </p>
+     */
+    private static final class PlanarScratch {
+        private static final ThreadLocal<PlanarScratch> sScratch = new ThreadLocal<PlanarScratch>() {
+            @Override
+            protected PlanarScratch initialValue() {
+                return new PlanarScratch();
+            }
+        };
+        float[][] mIn = new float[0][];
+        float[][] mOut = new float[0][];
+
+        static PlanarScratch get(final int channels, final int inSamples, final int outSamples) {
+            final PlanarScratch scratch = sScratch.get();
+            scratch.mIn = ensure(scratch.mIn, channels, inSamples);
+            scratch.mOut = ensure(scratch.mOut, channels, outSamples);
+            return scratch;
+        }
 
-                    writeInt16LE(outArray, outIndex, interpolated);
+        private static float[][] ensure(final float[][] planes, final int channels, final int samples) {
+            if (planes.length >= channels && planes[0].length >= samples) {
+                return planes;
+            }
+            final int capacity = Math.max(samples, planes.length > 0 ? planes[0].length : 0);
+            final float[][] grown = new float[Math.max(channels, planes.length)][];
+            for (int ch = 0; ch < grown.length; ch++) {
+                grown[ch] = new float[capacity];
+            }
+            return grown;
+        }
+    }
 
-                    // 更新输出缓冲区使用量
-                    final int currentEnd = outIndex + 2;
-                    if (currentEnd > outBufferIndex) {
-                        outBufferIndex = currentEnd;
-                    }
+    /**
+     * 线性插值升采样, planar float
+     *
+     * @param in        输入, in[ch][0, inSamples)
+     * @param inSamples 输入采样点数, at least 2
+     * @param channels  声道数
+     * @param upRatio   升采样倍数
+     * @param out       输出, out[ch] should hold (inSamples - 1) * upRatio samples
+     * @return 输出采样点数 (inSamples - 1) * upRatio
+     */
+    public static int upSampleLinear(final float[][] in, final int inSamples, final int channels,
+                                     final int upRatio, final float[][] out) {
+        if (inSamples < 2) {
+            throw new IllegalArgumentException("At least 2 input samples required for linear interpolation");
+        }
+        if (upRatio <= 0) {
+            throw new IllegalArgumentException("upRatio must be positive");
+        }
+        final int outSamples = (inSamples - 1) * upRatio;
+        for (int ch = 0; ch < channels; ch++) {
+            final float[] x = in[ch];
+            final float[] y = out[ch];
+            if (y.length < outSamples) {
+                throw new IllegalArgumentException("Output buffer too small, need samples: " + outSamples);
+            }
+            // j outer, so the inner loop is a plain stride loop with loop-invariant weights
+            for (int j = 0; j < upRatio; j++) {
+                final float t = (float) j / upRatio;
+                final float s = 1 - t;
+                for (int i = 0, o = j; i < inSamples - 1; i++, o += upRatio) {
+                    y[o] = x[i] * s + x[i + 1] * t;
                 }
             }
         }
-
-        outBuffer.setBufferUsed(outBufferIndex);
+        return outSamples;
     }
 
     /**
-     * 32位整数线性插值升采样
+     * 线性插值升采样, 16位整数交错数据, 经 planar float 处理
+     *
+     * @param in        输入, interleaved
+     * @param inSamples 输入采样点数(每声道), at least 2
+     * @param channels  声道数
+     * @param upRatio   升采样倍数
+     * @param out       输出, interleaved, should hold (inSamples - 1) * upRatio * channels
+     * @return 输出采样点数(每声道)
      */
-    private static void upSampleLinearInt32(final BufferWrapper inBuffer,
-                                            final BufferWrapper outBuffer,
-                                            final int inChannels,
-                                            final int inSamples,
-                                            final int upRatio,
-                                            final int onePointByteLen) {
-        final byte[] inArray = inBuffer.getBuffer();
-        final byte[] outArray = outBuffer.getBuffer();
-        final int maxOutBytes = outBuffer.getCapacity();
-        int outBufferIndex = 0;
-
-        for (int ch = 0; ch < inChannels; ch++) {
-            for (int i = 0; i < inSamples - 1; i++) {
-                // 读取当前和下一个采样点
-                final int inIndex1 = i * onePointByteLen + ch * 4;
-                final int inIndex2 = (i + 1) * onePointByteLen + ch * 4;
-
-                final int sample1 = readInt32LE(inArray, inIndex1);
-                final int sample2 = readInt32LE(inArray, inIndex2);
-
-                // 线性插值（使用long防止溢出）
-                for (int j = 0; j < upRatio; j++) {
-                    final float t = (float) j / upRatio;
-                    final long interpolated = Math.round(sample1 * (1.0 - t) + sample2 * t);
+    public static int upSampleLinear(final short[] in, final int inSamples, final int channels,
+                                     final int upRatio, final short[] out) {
+        if (inSamples < 2) {
+            throw new IllegalArgumentException("At least 2 input samples required for linear interpolation");
+        }
+        if (upRatio <= 0) {
+            throw new IllegalArgumentException("upRatio must be positive");
+        }
+        final int outSamples = (inSamples - 1) * upRatio;
+        if (out.length < outSamples * channels) {
+            throw new IllegalArgumentException("Output buffer too small, need samples: " + outSamples);
+        }
+        final int chunk = planarChunk(upRatio);
+        final PlanarScratch scratch = PlanarScratch.get(channels, chunk + 1, chunk * upRatio);
+        for (int i = 0; i < inSamples - 1; i += chunk) {
+            final int n = Math.min(chunk, inSamples - 1 - i);
+            deinterleave(in, i * channels, n + 1, channels, scratch.mIn);
+            upSampleLinear(scratch.mIn, n + 1, channels, upRatio, scratch.mOut);
+            interleave(scratch.mOut, n * upRatio, channels, out, i * upRatio * channels);
+        }
+        return outSamples;
+    }
 
-                    // 确保结果在32位有符号整数范围内
-                    final int clampedValue = clampToInt32(interpolated);
+    /**
+     * 交错16位整数转 planar float, full scale is [-1, 1)
+     *
+     * @param in       输入, interleaved
+     * @param inOffset offset of in
+     * @param samples  采样点数(每声道)
+     * @param channels 声道数
+     * @param out      输出, out[ch][0, samples)
+     */
+    public static void deinterleave(final short[] in, final int inOffset, final int samples,
+                                    final int channels, final float[][] out) {
+        for (int ch = 0; ch < channels; ch++) {
+            final float[] y = out[ch];
+            for (int i = 0, index = inOffset + ch; i < samples; i++, index += channels) {
+                y[i] = in[index] * (1f / 32768);
+            }
+        }
+    }
 
-                    // 计算输出位置
-                    final int outIndex = (i * upRatio + j) * onePointByteLen + ch * 4;
+    /**
+     * planar float 转交错16位整数, rounded and clamped
+     *
+     * @param in        输入, in[ch][0, samples)
+     * @param samples   采样点数(每声道)
+     * @param channels  声道数
+     * @param out       输出, interleaved
+     * @param outOffset offset of out
+     */
+    public static void interleave(final float[][] in, final int samples, final int channels,
+                                  final short[] out, final int outOffset) {
+        for (int ch = 0; ch < channels; ch++) {
+            final float[] x = in[ch];
+            for (int i = 0, index = outOffset + ch; i < samples; i++, index += channels) {
+                out[index] = roundToInt16(x[i]);
+            }
+        }
+    }
 
-                    // 检查输出缓冲区边界
-                    if (outIndex + 4 > maxOutBytes) {
-                        break;
+    /**
+     * 交错字节数据转 planar float, 整数 full scale is [-1, 1)
+     * <p> float keeps 24 bits of precision, INT32 loses the low 8 bits. </p>
+     *
+     * @param in         输入, interleaved little endian
+     * @param inOffset   offset of in in bytes
+     * @param samples    采样点数(每声道)
+     * @param channels   声道数
+     * @param sampleUnit 采样数据类型, INT16/INT24/INT32/FLOAT32
+     * @param out        输出, out[ch][0, samples)
+     */
+    public static void deinterleave(final byte[] in, final int inOffset, final int samples, final int channels,
+                                    final SampleUnit sampleUnit, final float[][] out) {
+        final int stride = sampleUnit.getBytesPerSample() * channels;
+        for (int ch = 0; ch < channels; ch++) {
+            final float[] y = out[ch];
+            int index = inOffset + ch * sampleUnit.getBytesPerSample();
+            switch (sampleUnit) {
+                case INT16:
+                    for (int i = 0; i < samples; i++, index += stride) {
+                        y[i] = readInt16LE(in, index) * (1f / 32768);
                     }
-
-                    writeInt32LE(outArray, outIndex, clampedValue);
-
-                    // 更新输出缓冲区使用量
-                    final int currentEnd = outIndex + 4;
-                    if (currentEnd > outBufferIndex) {
-                        outBufferIndex = currentEnd;
+                    break;
+                case INT24:
+                    for (int i = 0; i < samples; i++, index += stride) {
+                        y[i] = readInt24LE(in, index) * (1f / 8388608);
                     }
-                }
+                    break;
+                case INT32:
+                    for (int i = 0; i < samples; i++, index += stride) {
+                        y[i] = readInt32LE(in, index) * (1f / 2147483648f);
+                    }
+                    break;
+                case FLOAT32:
+                    for (int i = 0; i < samples; i++, index += stride) {
+                        y[i] = readFloat32LE(in, index);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported sample unit: " + sampleUnit);
             }
         }
-
-        outBuffer.setBufferUsed(outBufferIndex);
     }
 
     /**
-     * 32位浮点数线性插值升采样
+     * planar float 转交错字节数据, 整数 rounded and clamped
+     * <p> float keeps 24 bits of precision, INT32 loses the low 8 bits. </p>
+     *
+     * @param in         输入, in[ch][0, samples)
+     * @param samples    采样点数(每声道)
+     * @param channels   声道数
+     * @param sampleUnit 采样数据类型, INT16/INT24/INT32/FLOAT32
+     * @param out        输出, interleaved little endian
+     * @param outOffset  offset of out in bytes
      */
-    private static void upSampleLinearFloat32(final BufferWrapper inBuffer,
-                                              final BufferWrapper outBuffer,
-                                              final int inChannels,
-                                              final int inSamples,
-                                              final int upRatio,
-                                              final int onePointByteLen) {
-        final byte[] inArray = inBuffer.getBuffer();
-        final byte[] outArray = outBuffer.getBuffer();
-        final int maxOutBytes = outBuffer.getCapacity();
-        int outBufferIndex = 0;
-
-        for (int ch = 0; ch < inChannels; ch++) {
-            for (int i = 0; i < inSamples - 1; i++) {
-                // 读取当前和下一个采样点
-                final int inIndex1 = i * onePointByteLen + ch * 4;
-                final int inIndex2 = (i + 1) * onePointByteLen + ch * 4;
-
-                final float sample1 = readFloat32LE(inArray, inIndex1);
-                final float sample2 = readFloat32LE(inArray, inIndex2);
-
-                // 线性插值
-                for (int j = 0; j < upRatio; j++) {
-                    final float t = (float) j / upRatio;
-                    final float interpolated = sample1 * (1 - t) + sample2 * t;
-
-                    // 计算输出位置
-                    final int outIndex = (i * upRatio + j) * onePointByteLen + ch * 4;
-
-                    // 检查输出缓冲区边界
-                    if (outIndex + 4 > maxOutBytes) {
-                        break;
+    public static void interleave(final float[][] in, final int samples, final int channels,
+                                  final SampleUnit sampleUnit, final byte[] out, final int outOffset) {
+        final int stride = sampleUnit.getBytesPerSample() * channels;
+        for (int ch = 0; ch < channels; ch++) {
+            final float[] x = in[ch];
+            int index = outOffset + ch * sampleUnit.getBytesPerSample();
+            switch (sampleUnit) {
+                case INT16:
+                    for (int i = 0; i < samples; i++, index += stride) {
+                        writeInt16LE(out, index, roundToInt16(x[i]));
                     }
-
-                    writeFloat32LE(outArray, outIndex, interpolated);
-
-                    // 更新输出缓冲区使用量
-                    final int currentEnd = outIndex + 4;
-                    if (currentEnd > outBufferIndex) {
-                        outBufferIndex = currentEnd;
+                    break;
+                case INT24:
+                    for (int i = 0; i < samples; i++, index += stride) {
+                        writeInt24LE(out, index, clampToInt24(Math.round(x[i] * 8388608)));
                     }
-                }
+                    break;
+                case INT32:
+                    for (int i = 0; i < samples; i++, index += stride) {
+                        writeInt32LE(out, index, clampToInt32(Math.round(x[i] * 2147483648.0)));
+                    }
+                    break;
+                case FLOAT32:
+                    for (int i = 0; i < samples; i++, index += stride) {
+                        writeFloat32LE(out, index, x[i]);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported sample unit: " + sampleUnit);
             }
         }
+    }
 
-        outBuffer.setBufferUsed(outBufferIndex);
+    // same as clampToInt16(Math.round(x * 32768)), biased to positive so the cast floors, much cheaper than Math.round
+    private static short roundToInt16(final float x) {
+        final double biased = x * 32768.0 + 32768.5;
+        if (biased <= 0) {
+            return Short.MIN_VALUE;
+        }
+        if (biased >= 65536) {
+            return Short.MAX_VALUE;
+        }
+        return (short) ((int) biased - 32768);
+    }
+
+    /**
+     * 将int值限制在16位有符号整数范围内
+     */
+    public static short clampToInt16(int value) {
+        if (value > Short.MAX_VALUE) {
+            return Short.MAX_VALUE;
+        } else if (value < Short.MIN_VALUE) {
+            return Short.MIN_VALUE;
+        }
+        return (short) value;
+    }
+
+    /**
+     * 将int值限制在24位有符号整数范围内
+     */
+    public static int clampToInt24(int value) {
+        if (value > 0x7FFFFF) {
+            return 0x7FFFFF;
+        } else if (value < -0x800000) {
+            return -0x800000;
+        }
+        return value;
     }
 
     /**
@@ -465,6 +642,24 @@ public class Resample {
         buffer[offset + 1] = (byte) ((value >> 8) & 0xFF);
     }
 
+    /**
+     * 读取24位小端序整数(packed), sign extended
+     */
+    public static int readInt24LE(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) |
+                ((buffer[offset + 1] & 0xFF) << 8) |
+                (buffer[offset + 2] << 16);
+    }
+
+    /**
+     * 写入24位小端序整数(packed)
+     */
+    public static void writeInt24LE(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value & 0xFF);
+        buffer[offset + 1] = (byte) ((value >> 8) & 0xFF);
+        buffer[offset + 2] = (byte) ((value >> 16) & 0xFF);
+    }
+
     /**
      * 读取32位小端序整数
      */
@@ -4,19 +4,47 @@ import androidx.annotation.Keep;
 
 import com.threshold.jni.RingBufferJni;
 
-import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 
 /**
  * One Consumer(read) and One Producer(write) Thread-Safe RingBuffer.
+ * <p> ring memory lives on native, see {@link SpscByteRing} for pure java one. </p>
+ *
+ * <p> framed mode: {@link #offerRecord}/{@link #pollRecord}/{@link #drainRecords} keep
+ * whole records with a varint len header, do not mix them with raw byte read/write on one ring. </p>
  *
  * <p> not all of method are thread-safe(such as clear),
  * read/write thread-safe only in this condition: 1 consumer and 1 producer </p>
  */
 @Keep
-public class RingBuffer implements Closeable {
+public class RingBuffer implements ZeroCopyByteRing {
+
+    private static final ByteBuffer[] NO_REGION = new ByteBuffer[0];
+    // max records per drain JNI call, see jni drainRecords
+    private static final int DRAIN_MAX_COUNT = 64;
+
+    /**
+     * record callback of {@link #drainRecords(byte[], RecordHandler)}
+     */
+    public interface RecordHandler {
+        /**
+         * @param data   the scratch array holds record, only valid in this callback
+         * @param offset record offset on data
+         * @param len    record len
+         */
+        void onRecord(byte[] data, int offset, int len);
+    }
 
     // store ring buffer native handle. why use long: for compat with 64bit OS
     private long mNativeHandle;
+    // zero-copy views on ring memory, producer and consumer hold their own views.
+    private final RegionViews mWriteRegions = new RegionViews();
+    private final RegionViews mReadRegions = new RegionViews();
+    // wake up the other side which blocked on writeFully/readAtLeast
+    private final RingSignal mSignal = new RingSignal();
+    // record lens of drainRecords, consumer side only
+    private int[] mDrainLens;
 
     /**
      * init ring buffer with size
@@ -41,6 +69,7 @@ public class RingBuffer implements Closeable {
      *
      * @return ring used len in bytes
      */
+    @Override
     public int availableReadLen() {
         return RingBufferJni.availableRead(mNativeHandle);
     }
@@ -50,6 +79,7 @@ public class RingBuffer implements Closeable {
      *
      * @return ring free space len in bytes
      */
+    @Override
     public int availableWriteLen() {
         return RingBufferJni.availableWrite(mNativeHandle);
     }
@@ -59,6 +89,7 @@ public class RingBuffer implements Closeable {
      *
      * @return true for empty
      */
+    @Override
     public boolean isEmpty() {
         return availableReadLen() < 1;
     }
@@ -68,6 +99,7 @@ public class RingBuffer implements Closeable {
      *
      * @return true for full
      */
+    @Override
     public boolean isFull() {
         return availableWriteLen() < 1;
     }
@@ -80,8 +112,13 @@ public class RingBuffer implements Closeable {
      * @param len    how long you want to write to ring
      * @return real write data len
      */
+    @Override
     public int write(final byte[] data, int offset, int len) {
-        return RingBufferJni.write(mNativeHandle, data, offset, len);
+        final int written = RingBufferJni.write(mNativeHandle, data, offset, len);
+        if (written > 0) {
+            mSignal.signalReader();
+        }
+        return written;
     }
 
     /**
@@ -90,10 +127,94 @@ public class RingBuffer implements Closeable {
      * @param data the data you want to write to ring
      * @return real write data len
      */
+    @Override
     public int write(final byte[] data) {
         return write(data, 0, data.length);
     }
 
+    /**
+     * gather write parts (such as header and payload) to ring as one record, in one JNI call.
+     * <p> all or nothing: parts are published together if ring has enough space for all of them,
+     * otherwise nothing is written. so consumer never sees part of the record. </p>
+     *
+     * @param parts   the data parts you want to write to ring, in order
+     * @param offsets offset of each part
+     * @param lens    len of each part
+     * @return total write len, 0 if ring has not enough space
+     */
+    public int writeAll(final byte[][] parts, final int[] offsets, final int[] lens) {
+        if (parts.length != offsets.length || parts.length != lens.length) {
+            throw new IllegalArgumentException(String.format("parts(%d), offsets(%d) and lens(%d) count mismatch",
+                    parts.length, offsets.length, lens.length));
+        }
+        long totalLen = 0;
+        for (int i = 0; i < parts.length; i++) {
+            if (offsets[i] < 0 || lens[i] < 0 || offsets[i] + lens[i] > parts[i].length) {
+                throw new IndexOutOfBoundsException(String.format("part[%d]: offset=%d, len=%d, length=%d",
+                        i, offsets[i], lens[i], parts[i].length));
+            }
+            totalLen += lens[i];
+        }
+        if (totalLen < 1 || totalLen > Integer.MAX_VALUE) {
+            return 0;
+        }
+        final int written = RingBufferJni.writeAll(mNativeHandle, parts, offsets, lens, (int) totalLen);
+        if (written > 0) {
+            mSignal.signalReader();
+        }
+        return written;
+    }
+
+    /**
+     * write data to ring from ByteBuffer.
+     * <p> bytes between position and limit of src will be written, and src's position
+     * is advanced by the real write len, just like NIO channel does. </p>
+     * <p> direct buffer is copied by native directly, no java array copy involved. </p>
+     *
+     * @param src the data you want to write to ring
+     * @return real write data len
+     */
+    @Override
+    public int write(final ByteBuffer src) {
+        final int position = src.position();
+        final int len = src.remaining();
+        if (len < 1) {
+            return 0;
+        }
+        final int written;
+        if (src.isDirect()) {
+            written = checkDirectRet(RingBufferJni.writeDirect(mNativeHandle, src, position, len));
+            if (written > 0) {
+                mSignal.signalReader();
+            }
+        } else if (src.hasArray()) {
+            written = write(src.array(), src.arrayOffset() + position, len);
+        } else {
+            // read-only heap buffer: can't touch it's backing array, copy out what we could write.
+            final byte[] tmp = new byte[Math.min(len, availableWriteLen())];
+            src.duplicate().get(tmp);
+            written = write(tmp, 0, tmp.length);
+        }
+        src.position(position + written);
+        return written;
+    }
+
+    /**
+     * write all data to ring, block until consumer frees enough space or timeout.
+     * <p> producer is parked while waiting, and unparked as soon as consumer read/discard data. </p>
+     *
+     * @param data      the data you want to write to ring
+     * @param offset    data offset
+     * @param len       how long you want to write to ring
+     * @param timeoutMs max wait time in milliseconds, negative for wait forever
+     * @return real write data len, less than len only if timeout
+     * @throws InterruptedException if interrupted while waiting, data may be partially written
+     */
+    @Override
+    public int writeFully(final byte[] data, int offset, int len, long timeoutMs) throws InterruptedException {
+        return mSignal.writeFully(this, false, data, offset, len, timeoutMs);
+    }
+
     /**
      * read data from ring
      *
@@ -102,8 +223,13 @@ public class RingBuffer implements Closeable {
      * @param len    how long you want to read
      * @return real read out data len
      */
+    @Override
     public int read(final byte[] buffer, int offset, int len) {
-        return RingBufferJni.read(mNativeHandle, buffer, offset, len);
+        final int read = RingBufferJni.read(mNativeHandle, buffer, offset, len);
+        if (read > 0) {
+            mSignal.signalWriters();
+        }
+        return read;
     }
 
     /**
@@ -112,10 +238,41 @@ public class RingBuffer implements Closeable {
      * @param buffer store read out data
      * @return real read out data len
      */
+    @Override
     public int read(final byte[] buffer) {
         return read(buffer, 0, buffer.length);
     }
 
+    /**
+     * read data from ring to ByteBuffer.
+     * <p> at most dst.remaining() bytes will be read, and dst's position
+     * is advanced by the real read len, just like NIO channel does. </p>
+     * <p> direct buffer is filled by native directly, no java array copy involved. </p>
+     *
+     * @param dst store read out data
+     * @return real read out data len
+     */
+    @Override
+    public int read(final ByteBuffer dst) {
+        return transferTo(dst, false);
+    }
+
+    /**
+     * read data from ring to buffer(start at 0), block until at least min bytes read or timeout.
+     * <p> consumer is parked while waiting, and unparked as soon as producer write data.
+     * it reads as much as available (up to buffer.length) without waiting again. </p>
+     *
+     * @param buffer    store read out data
+     * @param min       the min len you want to read, should not exceed buffer.length
+     * @param timeoutMs max wait time in milliseconds, negative for wait forever
+     * @return real read out data len, less than min only if timeout
+     * @throws InterruptedException if interrupted while waiting, data may be partially read
+     */
+    @Override
+    public int readAtLeast(final byte[] buffer, int min, long timeoutMs) throws InterruptedException {
+        return mSignal.readAtLeast(this, buffer, min, timeoutMs);
+    }
+
     /**
      * discard data from ring.
      * <p> just like read, but not really copy data out.</p>
@@ -123,8 +280,13 @@ public class RingBuffer implements Closeable {
      * @param len how long would you want to discard
      * @return real discard len
      */
+    @Override
     public int discard(int len) {
-        return RingBufferJni.discard(mNativeHandle, len);
+        final int discarded = RingBufferJni.discard(mNativeHandle, len);
+        if (discarded > 0) {
+            mSignal.signalWriters();
+        }
+        return discarded;
     }
 
     /**
@@ -136,18 +298,216 @@ public class RingBuffer implements Closeable {
      * @param len    how long would you want to peek
      * @return real peek len
      */
+    @Override
     public int peek(final byte[] buffer, int offset, int len) {
         return RingBufferJni.peek(mNativeHandle, buffer, offset, len);
     }
 
+    /**
+     * peek data from ring, but not remove it from ring.
+     *
+     * @param buffer your buffer to store data
+     * @return real peek len
+     */
+    @Override
     public int peek(final byte[] buffer) {
-        return read(buffer, 0, buffer.length);
+        return peek(buffer, 0, buffer.length);
+    }
+
+    /**
+     * peek data from ring to ByteBuffer, but not remove it from ring.
+     * <p> dst's position is advanced by the real peek len. </p>
+     *
+     * @param dst your buffer to store data
+     * @return real peek len
+     */
+    @Override
+    public int peek(final ByteBuffer dst) {
+        return transferTo(dst, true);
+    }
+
+    private int transferTo(final ByteBuffer dst, final boolean isPeek) {
+        if (dst.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        final int position = dst.position();
+        final int len = dst.remaining();
+        if (len < 1) {
+            return 0;
+        }
+        final int transferred;
+        if (dst.isDirect()) {
+            transferred = checkDirectRet(isPeek ?
+                    RingBufferJni.peekDirect(mNativeHandle, dst, position, len) :
+                    RingBufferJni.readDirect(mNativeHandle, dst, position, len));
+            if (!isPeek) {
+                mSignal.signalWriters();
+            }
+        } else {
+            final int offset = dst.arrayOffset() + position;
+            transferred = isPeek ? peek(dst.array(), offset, len) : read(dst.array(), offset, len);
+        }
+        dst.position(position + transferred);
+        return transferred;
+    }
+
+    private static int checkDirectRet(final int ret) {
+        if (ret < 0) {
+            throw new IllegalArgumentException("failed on access direct buffer address");
+        }
+        return ret;
+    }
+
+    /**
+     * reserve free space on ring memory for zero-copy write (producer side).
+     * <p> put your data to the returned regions in order, then call {@link #commitWrite(int)}
+     * to make it visible to consumer. nothing is visible before commit. </p>
+     * <p> the returned array and it's ByteBuffers are reused on next reserve, do not hold them,
+     * and never touch them after {@link #close()}. </p>
+     *
+     * @param len how long you want to write
+     * @return one region, or two regions if reserved space wraps around the end of ring.
+     * empty array if ring is full
+     */
+    @Override
+    public ByteBuffer[] reserveWrite(int len) {
+        return mWriteRegions.map(RingBufferJni.writeRegion(mNativeHandle), len);
+    }
+
+    /**
+     * publish data which already put to regions returned by {@link #reserveWrite(int)}.
+     *
+     * @param len how long you filled, should not exceed reserved len
+     * @return real committed len
+     */
+    @Override
+    public int commitWrite(int len) {
+        final int committed = RingBufferJni.commitWrite(mNativeHandle, len);
+        if (committed > 0) {
+            mSignal.signalReader();
+        }
+        return committed;
+    }
+
+    /**
+     * acquire data on ring memory for zero-copy read (consumer side).
+     * <p> consume data from the returned regions in order (e.g. FileChannel.write(ByteBuffer[])),
+     * then call {@link #releaseRead(int)} to free the space for producer. </p>
+     * <p> the returned array and it's ByteBuffers are reused on next acquire, do not hold them,
+     * and never touch them after {@link #close()}. </p>
+     *
+     * @param len how long you want to read
+     * @return one region, or two regions if data wraps around the end of ring.
+     * empty array if ring is empty
+     */
+    @Override
+    public ByteBuffer[] acquireRead(int len) {
+        return mReadRegions.map(RingBufferJni.readRegion(mNativeHandle), len);
+    }
+
+    /**
+     * release data which acquired by {@link #acquireRead(int)}.
+     *
+     * @param len how long you consumed, should not exceed acquired len
+     * @return real released len
+     */
+    @Override
+    public int releaseRead(int len) {
+        final int released = RingBufferJni.releaseRead(mNativeHandle, len);
+        if (released > 0) {
+            mSignal.signalWriters();
+        }
+        return released;
+    }
+
+    /**
+     * write a record to ring (framed mode), all or nothing.
+     * <p> a varint len header (1~5 bytes) is stored before data,
+     * so consumer always gets the whole record back. </p>
+     *
+     * @param data   record data
+     * @param offset data offset
+     * @param len    record len
+     * @return true if written, false if ring has not enough space for header and data
+     */
+    public boolean offerRecord(final byte[] data, int offset, int len) {
+        if (offset < 0 || len < 0 || offset + len > data.length) {
+            throw new IndexOutOfBoundsException(String.format("offset=%d, len=%d, length=%d",
+                    offset, len, data.length));
+        }
+        final boolean offered = RingBufferJni.offerRecord(mNativeHandle, data, offset, len);
+        if (offered) {
+            mSignal.signalReader();
+        }
+        return offered;
+    }
+
+    /**
+     * get len of next record (framed mode), record is still on the ring.
+     *
+     * @return record len, -1 if no record
+     */
+    public int peekRecordLength() {
+        return RingBufferJni.peekRecordLength(mNativeHandle);
+    }
+
+    /**
+     * read next record from ring (framed mode).
+     *
+     * @param buffer store record data, start at 0
+     * @return record len, -1 if no record
+     * @throws IllegalArgumentException if buffer too small for the record, record is kept on ring
+     */
+    public int pollRecord(final byte[] buffer) {
+        final int ret = RingBufferJni.pollRecord(mNativeHandle, buffer, 0, buffer.length);
+        if (-2 == ret) {
+            throw new IllegalArgumentException(String.format("buffer(%d) too small for record(%d)",
+                    buffer.length, peekRecordLength()));
+        }
+        if (ret > -1) {
+            mSignal.signalWriters();
+        }
+        return ret;
+    }
+
+    /**
+     * read all records on ring (framed mode) and pass them to handler one by one.
+     * <p> as many records as could fit in scratch are copied out in one JNI call. </p>
+     *
+     * @param scratch temp buffer to hold records, should not be smaller than the max record len
+     * @param handler record callback
+     * @return record count drained
+     * @throws IllegalArgumentException if scratch too small for next record
+     */
+    public int drainRecords(final byte[] scratch, final RecordHandler handler) {
+        if (null == mDrainLens) {
+            mDrainLens = new int[DRAIN_MAX_COUNT];
+        }
+        final int[] lens = mDrainLens;
+        int total = 0;
+        int count;
+        while ((count = RingBufferJni.drainRecords(mNativeHandle, scratch, lens)) > 0) {
+            mSignal.signalWriters();
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                handler.onRecord(scratch, offset, lens[i]);
+                offset += lens[i];
+            }
+            total += count;
+        }
+        final int pending = peekRecordLength();
+        if (pending > scratch.length) {
+            throw new IllegalArgumentException(String.format("scratch(%d) too small for record(%d)",
+                    scratch.length, pending));
+        }
+        return total;
     }
 
     /**
      * clear all data on the ring, NOT THREAD-SAFE!
      * <p> call this method you should ensure ring not in read/write state! </p>
      */
+    @Override
     public void clear() {
         RingBufferJni.clear(mNativeHandle);
     }
@@ -165,6 +525,41 @@ public class RingBuffer implements Closeable {
         }
     }
 
+    private final class RegionViews {
+        private ByteBuffer[] mOneRegion;
+        private ByteBuffer[] mTwoRegions;
+
+        /**
+         * @param region packed region from native: high 32bit is offset, low 32bit is len
+         * @param len    request len
+         */
+        ByteBuffer[] map(final long region, final int len) {
+            final int offset = (int) (region >>> 32);
+            final int size = Math.min((int) region, len);
+            if (size < 1) {
+                return NO_REGION;
+            }
+            if (null == mTwoRegions) {
+                final ByteBuffer memory = RingBufferJni.memory(mNativeHandle);
+                mTwoRegions = new ByteBuffer[]{memory, memory.duplicate()};
+                mOneRegion = new ByteBuffer[]{memory};
+            }
+            final int firstLen = Math.min(size, mTwoRegions[0].capacity() - offset);
+            setRegion(mTwoRegions[0], offset, firstLen);
+            if (firstLen == size) {
+                return mOneRegion;
+            }
+            setRegion(mTwoRegions[1], 0, size - firstLen);
+            return mTwoRegions;
+        }
+
+        private void setRegion(final ByteBuffer view, final int offset, final int len) {
+            view.clear();
+            view.position(offset);
+            view.limit(offset + len);
+        }
+    }
+
     @Override
     protected void finalize() throws Throwable {
         // final safety, try save you! do not relay on it, you should close it by yourself!!!
@@ -0,0 +1,115 @@
+package com.threshold.toolbox;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * park/unpark signalling between ring producer(s) and consumer,
+ * backs the blocking {@link ByteRing#writeFully} and {@link ByteRing#readAtLeast}.
+ * <p> ring calls {@link #signalReader()} after data published
+ * and {@link #signalWriters()} after space freed, both cost one fence if nobody is waiting. </p>
+ */
+final class RingSignal {
+
+    // only one consumer for all rings
+    private volatile Thread mWaitingReader;
+    // MpscByteRing may have multiple producers waiting
+    private final ConcurrentLinkedQueue<Thread> mWaitingWriters = new ConcurrentLinkedQueue<>();
+    // volatile store on it is a StoreLoad fence: ring position published by lazySet(or native)
+    // must be visible before we check waiters, otherwise waiter may miss the signal and sleep forever.
+    @SuppressWarnings("unused")
+    private volatile int mFence;
+
+    void signalReader() {
+        mFence = 0;
+        final Thread reader = mWaitingReader;
+        if (null != reader) {
+            LockSupport.unpark(reader);
+        }
+    }
+
+    void signalWriters() {
+        mFence = 0;
+        if (mWaitingWriters.isEmpty()) {
+            return;
+        }
+        for (Thread writer : mWaitingWriters) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * @param isRecordWrite true if ring writes all-or-nothing, then wait space for all remaining data
+     */
+    int writeFully(final ByteRing ring, final boolean isRecordWrite, final byte[] data,
+                   final int offset, final int len, final long timeoutMs) throws InterruptedException {
+        final long deadline = deadlineOf(timeoutMs);
+        int written = 0;
+        while (true) {
+            written += ring.write(data, offset + written, len - written);
+            if (written >= len) {
+                return written;
+            }
+            final int need = isRecordWrite ? len - written : 1;
+            final Thread self = Thread.currentThread();
+            mWaitingWriters.offer(self);
+            try {
+                // check again after announced, so we won't miss the signal from consumer
+                if (ring.availableWriteLen() < need && !park(timeoutMs, deadline)) {
+                    return written;
+                }
+            } finally {
+                mWaitingWriters.remove(self);
+            }
+        }
+    }
+
+    int readAtLeast(final ByteRing ring, final byte[] buffer, final int min,
+                    final long timeoutMs) throws InterruptedException {
+        if (min > buffer.length) {
+            throw new IllegalArgumentException(String.format(
+                    "min(%d) exceed buffer len(%d)", min, buffer.length));
+        }
+        final long deadline = deadlineOf(timeoutMs);
+        int read = 0;
+        while (true) {
+            read += ring.read(buffer, read, buffer.length - read);
+            if (read >= min) {
+                return read;
+            }
+            mWaitingReader = Thread.currentThread();
+            try {
+                if (ring.availableReadLen() < 1 && !park(timeoutMs, deadline)) {
+                    return read;
+                }
+            } finally {
+                mWaitingReader = null;
+            }
+        }
+    }
+
+    private static long deadlineOf(final long timeoutMs) {
+        return timeoutMs < 0 ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * @return false if timeout
+     */
+    private boolean park(final long timeoutMs, final long deadline) throws InterruptedException {
+        if (timeoutMs < 0) {
+            LockSupport.park(this);
+        } else {
+            final long remain = deadline - System.nanoTime();
+            if (remain <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(this, remain);
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,263 @@
+package com.threshold.toolbox;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * file rotation of {@link AsyncFileWriter}, see {@link AsyncFileWriter#setRollingPolicy(RollingPolicy)}.
+ *
+ * <p> writer always writes to the file you passed in, on roll the file is renamed to
+ * "name.N" (N increases from 1, or "name.N.gz" if compressed) and a new file is created.
+ * oldest segments are deleted if exceed max files or max total bytes. </p>
+ * <p> roll happens between two chunk writes on writer thread, so no data lost or duplicated,
+ * and a segment exceeds max file size only if one chunk is bigger than it.
+ * segments are split at chunk boundary, not at line or PCM frame boundary. </p>
+ */
+public class RollingPolicy {
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private volatile long mMaxFileSize;
+    private volatile long mIntervalMs;
+    private volatile int mMaxFiles;
+    private volatile long mMaxTotalBytes;
+    private volatile boolean mCompress;
+
+    /**
+     * roll file once it reaches maxFileSize bytes
+     *
+     * @param maxFileSize max size of one segment in bytes
+     * @return the policy
+     */
+    public static RollingPolicy bySize(final long maxFileSize) {
+        return new RollingPolicy().setMaxFileSize(maxFileSize);
+    }
+
+    /**
+     * roll file on every wall-clock interval, such as every hour.
+     *
+     * @param interval roll interval
+     * @param unit     unit of interval
+     * @return the policy
+     */
+    public static RollingPolicy byInterval(final long interval, final TimeUnit unit) {
+        return new RollingPolicy().setInterval(interval, unit);
+    }
+
+    /**
+     * @param maxFileSize max size of one segment in bytes, 0 for no limit
+     * @return this policy
+     */
+    public RollingPolicy setMaxFileSize(final long maxFileSize) {
+        if (maxFileSize < 0) {
+            throw new IllegalArgumentException("Illegal maxFileSize: " + maxFileSize);
+        }
+        mMaxFileSize = maxFileSize;
+        return this;
+    }
+
+    /**
+     * roll at multiples of interval since epoch(UTC), so hourly rolls at the top of each hour.
+     *
+     * @param interval roll interval, 0 for no time based roll
+     * @param unit     unit of interval
+     * @return this policy
+     */
+    public RollingPolicy setInterval(final long interval, final TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("Illegal interval: " + interval);
+        }
+        mIntervalMs = unit.toMillis(interval);
+        return this;
+    }
+
+    /**
+     * @param maxFiles max count of rolled segments to keep, 0 for no limit
+     * @return this policy
+     */
+    public RollingPolicy setMaxFiles(final int maxFiles) {
+        if (maxFiles < 0) {
+            throw new IllegalArgumentException("Illegal maxFiles: " + maxFiles);
+        }
+        mMaxFiles = maxFiles;
+        return this;
+    }
+
+    /**
+     * @param maxTotalBytes max total size of rolled segments to keep, 0 for no limit
+     * @return this policy
+     */
+    public RollingPolicy setMaxTotalBytes(final long maxTotalBytes) {
+        if (maxTotalBytes < 0) {
+            throw new IllegalArgumentException("Illegal maxTotalBytes: " + maxTotalBytes);
+        }
+        mMaxTotalBytes = maxTotalBytes;
+        return this;
+    }
+
+    /**
+     * @param compress true to gzip rolled segments on a background thread
+     * @return this policy
+     */
+    public RollingPolicy setCompress(final boolean compress) {
+        mCompress = compress;
+        return this;
+    }
+
+    public long getMaxFileSize() {
+        return mMaxFileSize;
+    }
+
+    public long getIntervalMs() {
+        return mIntervalMs;
+    }
+
+    public int getMaxFiles() {
+        return mMaxFiles;
+    }
+
+    public long getMaxTotalBytes() {
+        return mMaxTotalBytes;
+    }
+
+    public boolean isCompress() {
+        return mCompress;
+    }
+
+    /**
+     * @return the time current segment should roll at, Long.MAX_VALUE if not rolls by time
+     */
+    long nextRollTimeMs(final long nowMs) {
+        final long intervalMs = mIntervalMs;
+        if (intervalMs <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return (nowMs / intervalMs + 1) * intervalMs;
+    }
+
+    /**
+     * @return true if segment should roll before write len bytes to it
+     */
+    boolean shouldRoll(final long segmentSize, final int len, final long nowMs, final long rollTimeMs) {
+        if (segmentSize <= 0) {
+            return false;
+        }
+        final long maxFileSize = mMaxFileSize;
+        return nowMs >= rollTimeMs || (maxFileSize > 0 && segmentSize + len > maxFileSize);
+    }
+
+    static File segmentFile(final File file, final int index) {
+        return new File(file.getPath() + "." + index);
+    }
+
+    /**
+     * @return index of segment file name, -1 if it is not a segment of file
+     */
+    private static int segmentIndexOf(final String fileName, final String segmentPrefix) {
+        if (!fileName.startsWith(segmentPrefix)) {
+            return -1;
+        }
+        String index = fileName.substring(segmentPrefix.length());
+        if (index.endsWith(GZIP_SUFFIX)) {
+            index = index.substring(0, index.length() - GZIP_SUFFIX.length());
+        }
+        if (index.isEmpty() || index.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < index.length(); i++) {
+            if (!Character.isDigit(index.charAt(i))) {
+                return -1;
+            }
+        }
+        return Integer.parseInt(index);
+    }
+
+    /**
+     * @return rolled segments of file, newest first
+     */
+    static List<File> listSegments(final File file) {
+        final List<File> segments = new ArrayList<>();
+        final File dir = file.getAbsoluteFile().getParentFile();
+        final File[] files = null == dir ? null : dir.listFiles();
+        if (null == files) {
+            return segments;
+        }
+        final String segmentPrefix = file.getName() + ".";
+        for (File f : files) {
+            if (segmentIndexOf(f.getName(), segmentPrefix) > 0) {
+                segments.add(f);
+            }
+        }
+        Collections.sort(segments, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Integer.compare(segmentIndexOf(o2.getName(), segmentPrefix),
+                        segmentIndexOf(o1.getName(), segmentPrefix));
+            }
+        });
+        return segments;
+    }
+
+    /**
+     * @return the biggest index of rolled segments, 0 if none
+     */
+    static int lastSegmentIndex(final File file) {
+        final List<File> segments = listSegments(file);
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        return segmentIndexOf(segments.get(0).getName(), file.getName() + ".");
+    }
+
+    /**
+     * compress the segment if needed, then delete old segments. called on background thread.
+     */
+    void onSegmentRolled(final File file, final File segment) throws IOException {
+        // segment may be deleted already by retention of former roll
+        if (mCompress && segment.exists()) {
+            gzip(segment);
+        }
+        final int maxFiles = mMaxFiles;
+        final long maxTotalBytes = mMaxTotalBytes;
+        if (maxFiles <= 0 && maxTotalBytes <= 0) {
+            return;
+        }
+        int count = 0;
+        long totalBytes = 0;
+        for (File f : listSegments(file)) {
+            count++;
+            totalBytes += f.length();
+            if ((maxFiles > 0 && count > maxFiles) || (maxTotalBytes > 0 && totalBytes > maxTotalBytes)) {
+                if (!f.delete()) {
+                    PlatformLog.w("RollingPolicy", "failed on delete " + f.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    private static void gzip(final File segment) throws IOException {
+        final File gzFile = new File(segment.getPath() + GZIP_SUFFIX);
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = new FileInputStream(segment);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(gzFile), buffer.length)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        if (!segment.delete()) {
+            PlatformLog.w("RollingPolicy", "failed on delete " + segment.getAbsolutePath());
+        }
+    }
+
+}
@@ -0,0 +1,289 @@
+package com.threshold.toolbox;
+
+/**
+ * Bulk sample format conversion between {@link Resample.SampleUnit}s, little endian PCM.
+ *
+ * <p> whole blocks are converted into caller-provided output, nothing is allocated per call.
+ * samples are read and written by shifts straight on the byte arrays, like {@link Resample#readInt16LE},
+ * then converted in chunks on a per-thread scratch. </p>
+ * <p> integer to integer keeps full precision: widening shifts, narrowing rounds and saturates.
+ * conversion with float scales integer full scale to [-1, 1), float to integer rounds and clamps.
+ * 8-bit is unsigned like {@link Resample}, 24-bit is packed 3 bytes. </p>
+ * <p> input and output must not overlap, unless units are the same. </p>
+ */
+public final class SampleConverter {
+
+    // samples converted per round, scratch stays in L1 cache
+    private static final int CHUNK_SAMPLES = 1024;
+
+    private SampleConverter() {
+        throw new IllegalStateException("no instance");
+    }
+
+    private static final class Scratch {
+        final int[] ints = new int[CHUNK_SAMPLES];
+        final float[] floats = new float[CHUNK_SAMPLES];
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * convert whole buffer, bufferUsed of outBuffer is set.
+     *
+     * @param inBuffer  输入音频缓冲区
+     * @param inUnit    输入采样数据类型
+     * @param outBuffer 输出音频缓冲区, capacity should hold all converted samples
+     * @param outUnit   输出采样数据类型
+     * @return converted samples(all channels)
+     */
+    public static int convert(final BufferWrapper inBuffer, final Resample.SampleUnit inUnit,
+                              final BufferWrapper outBuffer, final Resample.SampleUnit outUnit) {
+        if (inBuffer == null || outBuffer == null) {
+            throw new IllegalArgumentException("Input and output buffers cannot be null");
+        }
+        final int samples = inBuffer.getBufferUsed() / inUnit.getBytesPerSample();
+        final int outBytes = samples * outUnit.getBytesPerSample();
+        if (outBytes > outBuffer.getCapacity()) {
+            throw new IllegalArgumentException(
+                    String.format("outBuffer is not enough, need %d bytes", outBytes));
+        }
+        convert(inBuffer.getBuffer(), 0, inUnit, outBuffer.getBuffer(), 0, outUnit, samples);
+        outBuffer.setBufferUsed(outBytes);
+        return samples;
+    }
+
+    /**
+     * @param in        输入, little endian
+     * @param inOffset  offset of in in bytes
+     * @param inUnit    输入采样数据类型
+     * @param out       输出, little endian
+     * @param outOffset offset of out in bytes
+     * @param outUnit   输出采样数据类型
+     * @param samples   采样点数(all channels)
+     */
+    public static void convert(final byte[] in, final int inOffset, final Resample.SampleUnit inUnit,
+                               final byte[] out, final int outOffset, final Resample.SampleUnit outUnit,
+                               final int samples) {
+        checkRange(in, inOffset, inUnit, samples);
+        checkRange(out, outOffset, outUnit, samples);
+        if (inUnit == outUnit) {
+            System.arraycopy(in, inOffset, out, outOffset, samples * inUnit.getBytesPerSample());
+            return;
+        }
+        final Scratch scratch = SCRATCH.get();
+        final boolean viaFloat = Resample.SampleUnit.FLOAT32 == inUnit || Resample.SampleUnit.FLOAT32 == outUnit;
+        final int inSize = inUnit.getBytesPerSample();
+        final int outSize = outUnit.getBytesPerSample();
+        for (int done = 0; done < samples; ) {
+            final int n = Math.min(CHUNK_SAMPLES, samples - done);
+            final int inPos = inOffset + done * inSize;
+            final int outPos = outOffset + done * outSize;
+            if (viaFloat) {
+                decodeFloat(in, inPos, inUnit, scratch.floats, 0, n);
+                encodeFloat(scratch.floats, 0, n, outUnit, out, outPos);
+            } else {
+                decodeInt(in, inPos, inUnit, scratch.ints, n);
+                encodeInt(scratch.ints, n, outUnit, out, outPos);
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * PCM to float, 整数 full scale is [-1, 1)
+     *
+     * @param in        输入, little endian
+     * @param inOffset  offset of in in bytes
+     * @param inUnit    输入采样数据类型
+     * @param out       输出
+     * @param outOffset offset of out
+     * @param samples   采样点数(all channels)
+     */
+    public static void toFloat(final byte[] in, final int inOffset, final Resample.SampleUnit inUnit,
+                               final float[] out, final int outOffset, final int samples) {
+        checkRange(in, inOffset, inUnit, samples);
+        if (outOffset < 0 || outOffset + samples > out.length) {
+            throw new IndexOutOfBoundsException("out is not enough");
+        }
+        decodeFloat(in, inOffset, inUnit, out, outOffset, samples);
+    }
+
+    /**
+     * float to PCM, 整数 rounded and clamped
+     *
+     * @param in        输入, full scale is [-1, 1]
+     * @param inOffset  offset of in
+     * @param samples   采样点数(all channels)
+     * @param outUnit   输出采样数据类型
+     * @param out       输出, little endian
+     * @param outOffset offset of out in bytes
+     */
+    public static void fromFloat(final float[] in, final int inOffset, final int samples,
+                                 final Resample.SampleUnit outUnit, final byte[] out, final int outOffset) {
+        if (inOffset < 0 || inOffset + samples > in.length) {
+            throw new IndexOutOfBoundsException("in is not enough");
+        }
+        checkRange(out, outOffset, outUnit, samples);
+        encodeFloat(in, inOffset, samples, outUnit, out, outOffset);
+    }
+
+    private static void checkRange(final byte[] buffer, final int offset, final Resample.SampleUnit unit,
+                                   final int samples) {
+        if (unit == null) {
+            throw new IllegalArgumentException("Sample unit cannot be null");
+        }
+        if (samples < 0 || offset < 0 || offset + (long) samples * unit.getBytesPerSample() > buffer.length) {
+            throw new IndexOutOfBoundsException(
+                    String.format("%d samples of %s at offset %d out of %d bytes", samples, unit, offset, buffer.length));
+        }
+    }
+
+    // to int of 32 bits full scale, so widening is exact
+    static void decodeInt(final byte[] src, int pos, final Resample.SampleUnit unit,
+                          final int[] dst, final int n) {
+        switch (unit) {
+            case INT8:
+                for (int i = 0; i < n; i++, pos++) {
+                    dst[i] = ((src[pos] & 0xFF) - 128) << 24;
+                }
+                break;
+            case INT16:
+                for (int i = 0; i < n; i++, pos += 2) {
+                    dst[i] = Resample.readInt16LE(src, pos) << 16;
+                }
+                break;
+            case INT24:
+                for (int i = 0; i < n; i++, pos += 3) {
+                    dst[i] = Resample.readInt24LE(src, pos) << 8;
+                }
+                break;
+            case INT32:
+                for (int i = 0; i < n; i++, pos += 4) {
+                    dst[i] = Resample.readInt32LE(src, pos);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported sample unit: " + unit);
+        }
+    }
+
+    // round half up then saturate, value + half may overflow only at the top
+    private static int narrow(final int value, final int shift) {
+        final int half = 1 << (shift - 1);
+        return value > Integer.MAX_VALUE - half ? Integer.MAX_VALUE >> shift : (value + half) >> shift;
+    }
+
+    static void encodeInt(final int[] src, final int n, final Resample.SampleUnit unit,
+                          final byte[] dst, int pos) {
+        switch (unit) {
+            case INT8:
+                for (int i = 0; i < n; i++, pos++) {
+                    dst[pos] = (byte) (narrow(src[i], 24) + 128);
+                }
+                break;
+            case INT16:
+                for (int i = 0; i < n; i++, pos += 2) {
+                    Resample.writeInt16LE(dst, pos, (short) narrow(src[i], 16));
+                }
+                break;
+            case INT24:
+                for (int i = 0; i < n; i++, pos += 3) {
+                    Resample.writeInt24LE(dst, pos, narrow(src[i], 8));
+                }
+                break;
+            case INT32:
+                for (int i = 0; i < n; i++, pos += 4) {
+                    Resample.writeInt32LE(dst, pos, src[i]);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported sample unit: " + unit);
+        }
+    }
+
+    static void decodeFloat(final byte[] src, int pos, final Resample.SampleUnit unit,
+                            final float[] dst, final int dstOffset, final int n) {
+        final int end = dstOffset + n;
+        switch (unit) {
+            case INT8:
+                for (int i = dstOffset; i < end; i++, pos++) {
+                    dst[i] = ((src[pos] & 0xFF) - 128) * (1f / 128);
+                }
+                break;
+            case INT16:
+                for (int i = dstOffset; i < end; i++, pos += 2) {
+                    dst[i] = Resample.readInt16LE(src, pos) * (1f / 32768);
+                }
+                break;
+            case INT24:
+                for (int i = dstOffset; i < end; i++, pos += 3) {
+                    dst[i] = Resample.readInt24LE(src, pos) * (1f / 8388608);
+                }
+                break;
+            case INT32:
+                for (int i = dstOffset; i < end; i++, pos += 4) {
+                    dst[i] = Resample.readInt32LE(src, pos) * (1f / 2147483648f);
+                }
+                break;
+            case FLOAT32:
+                for (int i = dstOffset; i < end; i++, pos += 4) {
+                    dst[i] = Resample.readFloat32LE(src, pos);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported sample unit: " + unit);
+        }
+    }
+
+    // same as clamp(Math.round(x * scale)), biased to positive so the cast floors, much cheaper than Math.round
+    private static int roundToInt(final float x, final int bits) {
+        final double scale = 1 << (bits - 1);
+        final double biased = x * scale + scale + 0.5;
+        if (biased <= 0) {
+            return (int) -scale;
+        }
+        if (biased >= 2 * scale) {
+            return (int) scale - 1;
+        }
+        return (int) biased - (int) scale;
+    }
+
+    static void encodeFloat(final float[] src, final int srcOffset, final int n,
+                            final Resample.SampleUnit unit, final byte[] dst, int pos) {
+        final int end = srcOffset + n;
+        switch (unit) {
+            case INT8:
+                for (int i = srcOffset; i < end; i++, pos++) {
+                    dst[pos] = (byte) (roundToInt(src[i], 8) + 128);
+                }
+                break;
+            case INT16:
+                for (int i = srcOffset; i < end; i++, pos += 2) {
+                    Resample.writeInt16LE(dst, pos, (short) roundToInt(src[i], 16));
+                }
+                break;
+            case INT24:
+                for (int i = srcOffset; i < end; i++, pos += 3) {
+                    Resample.writeInt24LE(dst, pos, roundToInt(src[i], 24));
+                }
+                break;
+            case INT32:
+                for (int i = srcOffset; i < end; i++, pos += 4) {
+                    Resample.writeInt32LE(dst, pos, Resample.clampToInt32(Math.round(src[i] * 2147483648.0)));
+                }
+                break;
+            case FLOAT32:
+                for (int i = srcOffset; i < end; i++, pos += 4) {
+                    Resample.writeFloat32LE(dst, pos, src[i]);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported sample unit: " + unit);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.threshold.toolbox;
+
+/**
+ * single thread task queue, tasks run one by one in post order.
+ *
+ * <p> implementations: {@link HandlerSerialWorker} (Android HandlerThread)
+ * and {@link ExecutorSerialWorker} (plain JVM thread, or virtual thread on JDK 21+). </p>
+ */
+public interface SerialWorker {
+
+    /**
+     * run task on worker thread as soon as possible
+     *
+     * @param task the task to run
+     */
+    void post(Runnable task);
+
+    /**
+     * run task on worker thread after delay
+     *
+     * @param task    the task to run
+     * @param delayMs delay in milliseconds
+     */
+    void postDelayed(Runnable task, long delayMs);
+
+    /**
+     * run tasks already due, drop delayed tasks not due yet, then stop the worker thread.
+     * <p> tasks posted after this are ignored. </p>
+     */
+    void quitSafely();
+
+}
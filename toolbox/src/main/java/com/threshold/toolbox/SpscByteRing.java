@@ -0,0 +1,107 @@
+package com.threshold.toolbox;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pure java One Consumer(read) and One Producer(write) lock-free ring.
+ *
+ * <p> no JNI involved, so it works on plain JVM and there is no JNI transition cost per call,
+ * which makes it cheaper than {@link RingBuffer} for small writes. </p>
+ * <p> not all of method are thread-safe(such as clear),
+ * read/write thread-safe only in this condition: 1 consumer and 1 producer </p>
+ */
+public class SpscByteRing extends JavaByteRing implements ZeroCopyByteRing {
+
+    private final ByteBuffer[] mWriteRegions;
+    private final ByteBuffer[] mWriteRegion;
+
+    /**
+     * init ring with size
+     * <p>the bufferSize should be pow of 2, otherwise it will be aligned to the next pow of 2. </p>
+     *
+     * @param bufferSize capacity of ring in bytes
+     */
+    public SpscByteRing(int bufferSize) {
+        super(bufferSize);
+        mWriteRegions = new ByteBuffer[]{mMemory, mMemory.duplicate()};
+        mWriteRegion = new ByteBuffer[]{mWriteRegions[0]};
+    }
+
+    @Override
+    public int availableWriteLen() {
+        return mBuffer.length - availableReadLen();
+    }
+
+    // producer side: free space, refresh consumer position only if cached one is not enough.
+    private int writable(final long tail, final int want) {
+        int free = mBuffer.length - (int) (tail - mTail.mCachedOpposite);
+        if (free < want) {
+            mTail.mCachedOpposite = mHead.get();
+            free = mBuffer.length - (int) (tail - mTail.mCachedOpposite);
+        }
+        return Math.min(free, want);
+    }
+
+    @Override
+    public int write(final byte[] data, int offset, int len) {
+        final long tail = mTail.get();
+        final int n = writable(tail, len);
+        if (n < 1) {
+            return 0;
+        }
+        final int index = (int) tail & mMask;
+        final int firstLen = Math.min(n, mBuffer.length - index);
+        System.arraycopy(data, offset, mBuffer, index, firstLen);
+        System.arraycopy(data, offset + firstLen, mBuffer, 0, n - firstLen);
+        mTail.lazySet(tail + n);
+        mSignal.signalReader();
+        return n;
+    }
+
+    @Override
+    public int write(final byte[] data) {
+        return write(data, 0, data.length);
+    }
+
+    @Override
+    public int write(final ByteBuffer src) {
+        final long tail = mTail.get();
+        final int n = writable(tail, src.remaining());
+        if (n < 1) {
+            return 0;
+        }
+        final int index = (int) tail & mMask;
+        final int firstLen = Math.min(n, mBuffer.length - index);
+        src.get(mBuffer, index, firstLen);
+        src.get(mBuffer, 0, n - firstLen);
+        mTail.lazySet(tail + n);
+        mSignal.signalReader();
+        return n;
+    }
+
+    @Override
+    public ByteBuffer[] reserveWrite(int len) {
+        final long tail = mTail.get();
+        return mapRegion(mWriteRegions, mWriteRegion, (int) tail & mMask, writable(tail, len));
+    }
+
+    @Override
+    public int commitWrite(int len) {
+        final long tail = mTail.get();
+        final int n = writable(tail, len);
+        if (n > 0) {
+            mTail.lazySet(tail + n);
+            mSignal.signalReader();
+        }
+        return Math.max(n, 0);
+    }
+
+    @Override
+    public void clear() {
+        mHead.set(0);
+        mTail.set(0);
+        mHead.mCachedOpposite = 0;
+        mTail.mCachedOpposite = 0;
+    }
+
+}
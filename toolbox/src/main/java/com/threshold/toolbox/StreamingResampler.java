@@ -0,0 +1,198 @@
+package com.threshold.toolbox;
+
+/**
+ * Stateful linear interpolation resampler for streaming blocks, any ratio.
+ *
+ * <p> unlike {@link Resample#upSampleLinear}, last frame and phase of each block are kept,
+ * so the interval between two blocks is interpolated too and 10 ms blocks join without discontinuity,
+ * a block with only one frame is fine. output of a stream is the same no matter how it is split. </p>
+ * <p> position is tracked in exact integer ratio, no drift over hours. no anti-alias filter,
+ * use {@link PolyphaseResampler} for down sampling. </p>
+ * <p> not thread-safe, allocates nothing after construction. 8-bit is unsigned like {@link Resample}. </p>
+ */
+public class StreamingResampler {
+
+    private final int mInSampleRate;
+    private final int mOutSampleRate;
+    private final int mChannels;
+    private final Resample.SampleUnit mSampleUnit;
+    // reduced ratio, output advances mStep / mDenominator input frames
+    private final int mStep;
+    private final int mDenominator;
+    private final double[] mLastFrame;
+    // next output is at input frame mIndex + mFraction / mDenominator of current block, -1 is last frame
+    private int mIndex;
+    private int mFraction;
+
+    /**
+     * @param inSampleRate  输入采样率
+     * @param outSampleRate 输出采样率
+     * @param channels      声道数
+     * @param sampleUnit    采样数据类型
+     */
+    public StreamingResampler(final int inSampleRate, final int outSampleRate, final int channels,
+                              final Resample.SampleUnit sampleUnit) {
+        if (inSampleRate <= 0 || outSampleRate <= 0) {
+            throw new IllegalArgumentException("Sample rates must be positive");
+        }
+        if (channels <= 0) {
+            throw new IllegalArgumentException("Channel count must be positive");
+        }
+        if (sampleUnit == null) {
+            throw new IllegalArgumentException("Sample unit cannot be null");
+        }
+        mInSampleRate = inSampleRate;
+        mOutSampleRate = outSampleRate;
+        mChannels = channels;
+        mSampleUnit = sampleUnit;
+        int a = inSampleRate, b = outSampleRate;
+        while (b != 0) {
+            final int t = a % b;
+            a = b;
+            b = t;
+        }
+        mStep = inSampleRate / a;
+        mDenominator = outSampleRate / a;
+        mLastFrame = new double[channels];
+    }
+
+    /**
+     * forget history, as if newly created.
+     */
+    public void reset() {
+        mIndex = 0;
+        mFraction = 0;
+    }
+
+    public int getInSampleRate() {
+        return mInSampleRate;
+    }
+
+    public int getOutSampleRate() {
+        return mOutSampleRate;
+    }
+
+    /**
+     * @param inFrames input frames of one call
+     * @return max output frames of that call
+     */
+    public int getMaxOutputFrames(final int inFrames) {
+        return (int) (((long) inFrames * mDenominator + mStep - 1) / mStep);
+    }
+
+    /**
+     * resample one block of interleaved PCM.
+     *
+     * @param inBuffer  输入音频缓冲区, bufferUsed should be whole frames
+     * @param outBuffer 输出音频缓冲区, capacity should hold {@link #getMaxOutputFrames(int)} frames
+     * @return frames written to outBuffer, bufferUsed of it is set
+     */
+    public int process(final BufferWrapper inBuffer, final BufferWrapper outBuffer) {
+        if (inBuffer == null || outBuffer == null) {
+            throw new IllegalArgumentException("Input and output buffers cannot be null");
+        }
+        final int sampleSize = mSampleUnit.getBytesPerSample();
+        final int frameBytes = sampleSize * mChannels;
+        final int inFrames = inBuffer.getBufferUsed() / frameBytes;
+        checkCapacity(outBuffer, getMaxOutputFrames(inFrames), frameBytes);
+        final byte[] in = inBuffer.getBuffer();
+        final byte[] out = outBuffer.getBuffer();
+        int outFrames = 0;
+        // right frame of interpolation should be in this block
+        while (mIndex + 1 < inFrames) {
+            final double t = (double) mFraction / mDenominator;
+            final int outOffset = outFrames * frameBytes;
+            for (int ch = 0; ch < mChannels; ch++) {
+                final double left = mIndex < 0 ? mLastFrame[ch] :
+                        read(in, mIndex * frameBytes + ch * sampleSize);
+                final double right = read(in, (mIndex + 1) * frameBytes + ch * sampleSize);
+                write(out, outOffset + ch * sampleSize, left + (right - left) * t);
+            }
+            outFrames++;
+            advance();
+        }
+        if (inFrames > 0) {
+            final int lastOffset = (inFrames - 1) * frameBytes;
+            for (int ch = 0; ch < mChannels; ch++) {
+                mLastFrame[ch] = read(in, lastOffset + ch * sampleSize);
+            }
+            // relative to next block
+            mIndex -= inFrames;
+        }
+        outBuffer.setBufferUsed(outFrames * frameBytes);
+        return outFrames;
+    }
+
+    /**
+     * end of stream: emit outputs after the last input frame by holding it, then reset.
+     * without it the stream is short of at most one input frame of output.
+     *
+     * @param outBuffer 输出音频缓冲区, capacity should hold {@link #getMaxOutputFrames(int)} of 1 frame
+     * @return frames written to outBuffer, bufferUsed of it is set
+     */
+    public int drain(final BufferWrapper outBuffer) {
+        final int sampleSize = mSampleUnit.getBytesPerSample();
+        final int frameBytes = sampleSize * mChannels;
+        checkCapacity(outBuffer, getMaxOutputFrames(1), frameBytes);
+        final byte[] out = outBuffer.getBuffer();
+        int outFrames = 0;
+        while (mIndex < 0) {
+            final int outOffset = outFrames * frameBytes;
+            for (int ch = 0; ch < mChannels; ch++) {
+                write(out, outOffset + ch * sampleSize, mLastFrame[ch]);
+            }
+            outFrames++;
+            advance();
+        }
+        reset();
+        outBuffer.setBufferUsed(outFrames * frameBytes);
+        return outFrames;
+    }
+
+    private void advance() {
+        mFraction += mStep;
+        mIndex += mFraction / mDenominator;
+        mFraction %= mDenominator;
+    }
+
+    private static void checkCapacity(final BufferWrapper outBuffer, final int frames, final int frameBytes) {
+        if ((long) frames * frameBytes > outBuffer.getCapacity()) {
+            throw new IllegalArgumentException("Output buffer too small, need frames: " + frames);
+        }
+    }
+
+    private double read(final byte[] buffer, final int offset) {
+        switch (mSampleUnit) {
+            case INT8:
+                return buffer[offset] & 0xFF;
+            case INT16:
+                return Resample.readInt16LE(buffer, offset);
+            case INT24:
+                return Resample.readInt24LE(buffer, offset);
+            case INT32:
+                return Resample.readInt32LE(buffer, offset);
+            default:
+                return Resample.readFloat32LE(buffer, offset);
+        }
+    }
+
+    private void write(final byte[] buffer, final int offset, final double value) {
+        switch (mSampleUnit) {
+            case INT8:
+                buffer[offset] = (byte) Math.round(value);
+                break;
+            case INT16:
+                Resample.writeInt16LE(buffer, offset, (short) Math.round(value));
+                break;
+            case INT24:
+                Resample.writeInt24LE(buffer, offset, (int) Math.round(value));
+                break;
+            case INT32:
+                Resample.writeInt32LE(buffer, offset, Resample.clampToInt32(Math.round(value)));
+                break;
+            default:
+                Resample.writeFloat32LE(buffer, offset, (float) value);
+                break;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.threshold.toolbox;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Streaming wav writer, PCM goes to file through {@link AsyncFileWriter}, header sizes are patched on close.
+ *
+ * <p> unlike {@link PcmWavUtil#pcmToWav(byte[], int, int, int)}, PCM is never held in memory,
+ * so it suits for hour-long recordings. </p>
+ * <p> header is the one of {@link PcmWavUtil#generateWavHeader(int, int, int, int)} with a JUNK chunk
+ * after "RIFF....WAVE", so PCM starts at {@link #HEADER_SIZE}. if file exceeds 4GB on close,
+ * the file turns into RF64: JUNK becomes "ds64" holding the 64-bit sizes(EBU TECH 3306). </p>
+ * <p> file is invalid(sizes are 0) until closed. </p>
+ */
+public class WavFileWriter extends OutputStream {
+
+    /**
+     * RIFF(12) + JUNK(8 + 28) + fmt(8 + 16) + data(8)
+     */
+    public static final int HEADER_SIZE = 80;
+
+    private static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    private static final int STANDARD_HEADER_SIZE = 44;
+    private static final int JUNK_CHUNK_SIZE = 36;
+    private static final int DS64_SIZE = 28;
+    private static final int RIFF_SIZE_OFFSET = 4;
+    private static final int DS64_OFFSET = 12;
+    private static final int DATA_SIZE_OFFSET = HEADER_SIZE - 4;
+    private static final long MAX_UINT32 = 0xFFFFFFFFL;
+
+    private final File mFile;
+    private final AsyncFileWriter mWriter;
+    private final int mBlockAlign;
+    private long mWrittenBytes;
+    private boolean mClosed;
+
+    /**
+     * @param file         wav file to write
+     * @param sampleRate   采样频率, 例如16000
+     * @param numChannels  声道设置, mono = 1, stereo = 2
+     * @param bitPerSample 采样精度, 例如16bits
+     * @throws IOException if failed on write header
+     */
+    public WavFileWriter(final File file, final int sampleRate, final int numChannels,
+                         final int bitPerSample) throws IOException {
+        this(file, new RingBuffer(DEFAULT_BUFFER_SIZE), sampleRate, numChannels, bitPerSample);
+    }
+
+    /**
+     * @param file         wav file to write
+     * @param ringBuf      ring of the {@link AsyncFileWriter}
+     * @param sampleRate   采样频率, 例如16000
+     * @param numChannels  声道设置, mono = 1, stereo = 2
+     * @param bitPerSample 采样精度, 例如16bits
+     * @throws IOException if failed on write header
+     */
+    public WavFileWriter(final File file, final ByteRing ringBuf, final int sampleRate,
+                         final int numChannels, final int bitPerSample) throws IOException {
+        if (sampleRate <= 0 || numChannels <= 0 || bitPerSample <= 0 || bitPerSample % 8 != 0) {
+            throw new IllegalArgumentException("Illegal format: sampleRate=" + sampleRate +
+                    ", numChannels=" + numChannels + ", bitPerSample=" + bitPerSample);
+        }
+        mFile = file;
+        mBlockAlign = numChannels * bitPerSample / 8;
+        mWriter = new AsyncFileWriter(file, ringBuf, null, AsyncFileWriter.Backend.FILE_CHANNEL);
+        mWriter.write(generateHeader(sampleRate, numChannels, bitPerSample));
+    }
+
+    private static byte[] generateHeader(final int sampleRate, final int numChannels, final int bitPerSample) {
+        final byte[] standardHeader = PcmWavUtil.generateWavHeader(0, numChannels, sampleRate, bitPerSample);
+        final byte[] header = new byte[HEADER_SIZE];
+        System.arraycopy(standardHeader, 0, header, 0, DS64_OFFSET);
+        // JUNK reserves room for ds64, so the file can turn into RF64 without moving PCM
+        header[DS64_OFFSET] = 'J';
+        header[DS64_OFFSET + 1] = 'U';
+        header[DS64_OFFSET + 2] = 'N';
+        header[DS64_OFFSET + 3] = 'K';
+        header[DS64_OFFSET + 4] = DS64_SIZE;
+        System.arraycopy(standardHeader, DS64_OFFSET, header, DS64_OFFSET + JUNK_CHUNK_SIZE,
+                STANDARD_HEADER_SIZE - DS64_OFFSET);
+        return header;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] data) throws IOException {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * write PCM, not thread-safe.
+     */
+    @Override
+    public void write(final byte[] data, final int offset, final int len) throws IOException {
+        mWriter.write(data, offset, len);
+        mWrittenBytes += len;
+    }
+
+    @Override
+    public void flush() {
+        mWriter.flush();
+    }
+
+    /**
+     * @return PCM bytes written
+     */
+    public long getDataSize() {
+        return mWrittenBytes;
+    }
+
+    /**
+     * write remaining PCM to file, then patch sizes of header. blocks until done.
+     *
+     * @throws IOException if failed on write PCM or patch header
+     */
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        final long dataSize = mWrittenBytes - mWriter.getDroppedBytes();
+        // close completes the pending sync after all data written
+        final Future<Void> synced;
+        try {
+            // chunk size is even in RIFF
+            if ((dataSize & 1) != 0) {
+                mWriter.write(0);
+            }
+            synced = mWriter.flushAndSync();
+        } catch (IllegalStateException e) {
+            throw new IOException("AsyncFileWriter closed on error", e);
+        } finally {
+            mWriter.close();
+        }
+        try {
+            synced.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted on wait PCM written");
+        } catch (ExecutionException e) {
+            throw new IOException("failed on write PCM", e.getCause());
+        }
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            final long riffSize = HEADER_SIZE - 8 + dataSize + (dataSize & 1);
+            patchHeader(file.getChannel(), dataSize, mBlockAlign, riffSize > MAX_UINT32);
+        }
+    }
+
+    static void patchHeader(final FileChannel channel, final long dataSize, final int blockAlign,
+                            final boolean rf64) throws IOException {
+        final long riffSize = HEADER_SIZE - 8 + dataSize + (dataSize & 1);
+        final ByteBuffer buffer = ByteBuffer.allocate(DS64_SIZE + 8).order(ByteOrder.LITTLE_ENDIAN);
+        if (!rf64) {
+            buffer.putInt(0, (int) riffSize).limit(4);
+            writeFully(channel, buffer, RIFF_SIZE_OFFSET);
+            buffer.clear();
+            buffer.putInt(0, (int) dataSize).limit(4);
+            writeFully(channel, buffer, DATA_SIZE_OFFSET);
+            return;
+        }
+        // "RF64", RIFF size -1
+        buffer.put((byte) 'R').put((byte) 'F').put((byte) '6').put((byte) '4').putInt(-1).flip();
+        writeFully(channel, buffer, 0);
+        buffer.clear();
+        buffer.put((byte) 'd').put((byte) 's').put((byte) '6').put((byte) '4').putInt(DS64_SIZE)
+                .putLong(riffSize).putLong(dataSize).putLong(dataSize / blockAlign)
+                // table length
+                .putInt(0)
+                .flip();
+        writeFully(channel, buffer, DS64_OFFSET);
+        buffer.clear();
+        buffer.putInt(0, -1).limit(4);
+        writeFully(channel, buffer, DATA_SIZE_OFFSET);
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.threshold.toolbox;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wav reader, parses RIFF chunks and maps the data chunk, PCM is never copied in java heap.
+ *
+ * <p> unlike {@link PcmWavUtil#wavToPcm(byte[])}, header is not assumed to be 44 bytes:
+ * fmt(including WAVE_FORMAT_EXTENSIBLE), fact, LIST/INFO, RF64/BW64 with ds64 are parsed,
+ * unknown chunks are skipped. </p>
+ * <p> data chunk bigger than 2GB can't be one ByteBuffer, use {@link #getData(long, int)}
+ * or {@link #readFrames(long, BufferWrapper)} then. </p>
+ */
+public class WavReader implements Closeable {
+
+    public static final int WAVE_FORMAT_PCM = 1;
+    public static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    public static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long MAX_UINT32 = 0xFFFFFFFFL;
+    // bodies of fmt/ds64/fact/LIST bigger than this are not header any more
+    private static final int MAX_META_CHUNK_SIZE = 64 * 1024;
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private int mAudioFormat;
+    private int mNumChannels;
+    private int mSampleRate;
+    private int mBlockAlign;
+    private int mBitsPerSample;
+    private int mValidBitsPerSample;
+    private int mChannelMask;
+    private long mFactSampleCount = -1;
+    private final Map<String, String> mInfo = new LinkedHashMap<>();
+    private long mDataOffset = -1;
+    private long mDataSize;
+    // null if data chunk is bigger than 2GB
+    private ByteBuffer mData;
+
+    public WavReader(final String path) throws IOException {
+        this(new File(path));
+    }
+
+    /**
+     * @param file wav file to read
+     * @throws IOException if failed on read file or file is not a valid wav
+     */
+    public WavReader(final File file) throws IOException {
+        mFile = new RandomAccessFile(file, "r");
+        mChannel = mFile.getChannel();
+        try {
+            parse();
+            if (mDataSize <= Integer.MAX_VALUE) {
+                mData = mChannel.map(FileChannel.MapMode.READ_ONLY, mDataOffset, mDataSize)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException | RuntimeException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    private ByteBuffer readBody(final long position, final int len) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(len).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (mChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of wav file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String fourCC(final ByteBuffer buffer, final int offset) {
+        final char[] chars = new char[4];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private void parse() throws IOException {
+        final long fileLen = mChannel.size();
+        final ByteBuffer riff = readBody(0, 12);
+        final String riffId = fourCC(riff, 0);
+        final boolean rf64 = "RF64".equals(riffId) || "BW64".equals(riffId);
+        if ((!rf64 && !"RIFF".equals(riffId)) || !"WAVE".equals(fourCC(riff, 8))) {
+            throw new IOException("Not a wav file: " + riffId);
+        }
+        long ds64DataSize = -1;
+        boolean hasFmt = false;
+        long position = 12;
+        while (position + 8 <= fileLen) {
+            final ByteBuffer chunkHeader = readBody(position, 8);
+            final String chunkId = fourCC(chunkHeader, 0);
+            long chunkSize = chunkHeader.getInt(4) & MAX_UINT32;
+            final long bodyPosition = position + 8;
+            if ("data".equals(chunkId)) {
+                if (!hasFmt) {
+                    throw new IOException("data chunk before fmt chunk");
+                }
+                if (MAX_UINT32 == chunkSize) {
+                    // RF64 size, or unknown size of a stream which is not finished
+                    chunkSize = ds64DataSize >= 0 ? ds64DataSize : fileLen - bodyPosition;
+                }
+                mDataOffset = bodyPosition;
+                // truncated file
+                mDataSize = Math.min(chunkSize, fileLen - bodyPosition);
+                break;
+            }
+            if (chunkSize <= MAX_META_CHUNK_SIZE) {
+                if ("fmt ".equals(chunkId)) {
+                    parseFmt(readBody(bodyPosition, (int) chunkSize));
+                    hasFmt = true;
+                } else if ("ds64".equals(chunkId) && rf64 && chunkSize >= 24) {
+                    // riffSize(8), dataSize(8), sampleCount(8), table...
+                    final ByteBuffer ds64 = readBody(bodyPosition, 24);
+                    ds64DataSize = ds64.getLong(8);
+                    mFactSampleCount = ds64.getLong(16);
+                } else if ("fact".equals(chunkId) && chunkSize >= 4 && mFactSampleCount < 0) {
+                    mFactSampleCount = readBody(bodyPosition, 4).getInt(0) & MAX_UINT32;
+                } else if ("LIST".equals(chunkId) && chunkSize >= 4) {
+                    parseList(readBody(bodyPosition, (int) chunkSize));
+                }
+            }
+            // chunks are word aligned
+            position = bodyPosition + chunkSize + (chunkSize & 1);
+        }
+        if (mDataOffset < 0) {
+            throw new IOException("No data chunk found");
+        }
+    }
+
+    private void parseFmt(final ByteBuffer fmt) throws IOException {
+        if (fmt.limit() < 16) {
+            throw new IOException("fmt chunk too small: " + fmt.limit());
+        }
+        mAudioFormat = fmt.getShort(0) & 0xFFFF;
+        mNumChannels = fmt.getShort(2) & 0xFFFF;
+        mSampleRate = fmt.getInt(4);
+        mBlockAlign = fmt.getShort(12) & 0xFFFF;
+        mBitsPerSample = fmt.getShort(14) & 0xFFFF;
+        mValidBitsPerSample = mBitsPerSample;
+        // cbSize(2), validBits(2), channelMask(4), subFormat GUID(16) which starts with the format code
+        if (WAVE_FORMAT_EXTENSIBLE == mAudioFormat && fmt.limit() >= 40
+                && (fmt.getShort(16) & 0xFFFF) >= 22) {
+            final int validBits = fmt.getShort(18) & 0xFFFF;
+            if (validBits > 0) {
+                mValidBitsPerSample = validBits;
+            }
+            mChannelMask = fmt.getInt(20);
+            mAudioFormat = fmt.getShort(24) & 0xFFFF;
+        }
+        if (mNumChannels <= 0 || mSampleRate <= 0 || mBlockAlign <= 0) {
+            throw new IOException("Illegal fmt: channels=" + mNumChannels +
+                    ", sampleRate=" + mSampleRate + ", blockAlign=" + mBlockAlign);
+        }
+    }
+
+    private void parseList(final ByteBuffer list) {
+        if (!"INFO".equals(fourCC(list, 0))) {
+            return;
+        }
+        int position = 4;
+        while (position + 8 <= list.limit()) {
+            final String id = fourCC(list, position);
+            final int size = list.getInt(position + 4);
+            if (size < 0 || position + 8 + size > list.limit()) {
+                break;
+            }
+            int len = size;
+            // zero terminated
+            while (len > 0 && list.get(position + 8 + len - 1) == 0) {
+                len--;
+            }
+            final byte[] value = new byte[len];
+            for (int i = 0; i < len; i++) {
+                value[i] = list.get(position + 8 + i);
+            }
+            mInfo.put(id, new String(value, UTF8));
+            position += 8 + size + (size & 1);
+        }
+    }
+
+    /**
+     * @return format code, the sub format of WAVE_FORMAT_EXTENSIBLE is returned,
+     * such as {@link #WAVE_FORMAT_PCM}, {@link #WAVE_FORMAT_IEEE_FLOAT}
+     */
+    public int getAudioFormat() {
+        return mAudioFormat;
+    }
+
+    public int getNumChannels() {
+        return mNumChannels;
+    }
+
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    /**
+     * @return bytes of one frame(all channels)
+     */
+    public int getBlockAlign() {
+        return mBlockAlign;
+    }
+
+    public int getBitsPerSample() {
+        return mBitsPerSample;
+    }
+
+    /**
+     * @return valid bits of WAVE_FORMAT_EXTENSIBLE, bitsPerSample otherwise
+     */
+    public int getValidBitsPerSample() {
+        return mValidBitsPerSample;
+    }
+
+    /**
+     * @return speaker position mask of WAVE_FORMAT_EXTENSIBLE, 0 otherwise
+     */
+    public int getChannelMask() {
+        return mChannelMask;
+    }
+
+    /**
+     * @return sample unit for {@link Resample}, null if not supported.
+     * note that 8-bit wav is unsigned
+     */
+    public Resample.SampleUnit getSampleUnit() {
+        if (WAVE_FORMAT_IEEE_FLOAT == mAudioFormat) {
+            return 32 == mBitsPerSample ? Resample.SampleUnit.FLOAT32 : null;
+        }
+        if (WAVE_FORMAT_PCM != mAudioFormat) {
+            return null;
+        }
+        switch (mBitsPerSample) {
+            case 8:
+                return Resample.SampleUnit.INT8;
+            case 16:
+                return Resample.SampleUnit.INT16;
+            case 24:
+                return Resample.SampleUnit.INT24;
+            case 32:
+                return Resample.SampleUnit.INT32;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return frame count in data chunk
+     */
+    public long getFrameCount() {
+        return mDataSize / mBlockAlign;
+    }
+
+    /**
+     * @return sample count(per channel) of fact/ds64 chunk, -1 if not present
+     */
+    public long getFactSampleCount() {
+        return mFactSampleCount;
+    }
+
+    /**
+     * @return LIST/INFO entries, such as "INAM" to title, empty if not present
+     */
+    public Map<String, String> getInfo() {
+        return Collections.unmodifiableMap(mInfo);
+    }
+
+    /**
+     * @return offset of PCM in file
+     */
+    public long getDataOffset() {
+        return mDataOffset;
+    }
+
+    /**
+     * @return PCM len in bytes
+     */
+    public long getDataSize() {
+        return mDataSize;
+    }
+
+    /**
+     * @return read-only little endian view of the whole data chunk, position is 0
+     * @throws IllegalStateException if data chunk is bigger than 2GB
+     */
+    public ByteBuffer getData() {
+        if (null == mData) {
+            throw new IllegalStateException("data chunk too big to map at once: " + mDataSize);
+        }
+        return mData.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @param offset offset in data chunk
+     * @param length bytes to view, clamped to data chunk
+     * @return read-only little endian view of a part of data chunk, mapped on demand if data chunk is too big
+     * @throws IOException if failed on map
+     */
+    public ByteBuffer getData(final long offset, final int length) throws IOException {
+        if (offset < 0 || offset > mDataSize || length < 0) {
+            throw new IndexOutOfBoundsException("Invalid offset/length");
+        }
+        final int len = (int) Math.min(length, mDataSize - offset);
+        if (null != mData) {
+            final ByteBuffer view = mData.asReadOnlyBuffer();
+            view.position((int) offset);
+            view.limit((int) offset + len);
+            return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return mChannel.map(FileChannel.MapMode.READ_ONLY, mDataOffset + offset, len)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * copy whole frames from data chunk to block, as input of {@link Resample}.
+     *
+     * @param frameIndex first frame to read
+     * @param block      destination, its bufferUsed is set to bytes copied
+     * @return frames read, 0 on end of data
+     * @throws IOException if failed on read file
+     */
+    public int readFrames(final long frameIndex, final BufferWrapper block) throws IOException {
+        final long offset = frameIndex * mBlockAlign;
+        if (frameIndex < 0 || offset > mDataSize) {
+            throw new IndexOutOfBoundsException("Invalid frameIndex: " + frameIndex);
+        }
+        final int frames = (int) Math.min(block.getCapacity() / mBlockAlign, (mDataSize - offset) / mBlockAlign);
+        final int len = frames * mBlockAlign;
+        if (null != mData) {
+            final ByteBuffer view = mData.duplicate();
+            view.position((int) offset);
+            view.get(block.getBuffer(), 0, len);
+        } else {
+            final ByteBuffer dst = ByteBuffer.wrap(block.getBuffer(), 0, len);
+            while (dst.hasRemaining()) {
+                if (mChannel.read(dst, mDataOffset + offset + dst.position()) < 0) {
+                    throw new EOFException("Unexpected end of wav file");
+                }
+            }
+        }
+        block.setBufferUsed(len);
+        return frames;
+    }
+
+    /**
+     * close the file, buffers returned by {@link #getData()} are still valid until garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+}
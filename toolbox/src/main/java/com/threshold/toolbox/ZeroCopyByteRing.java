@@ -0,0 +1,31 @@
+package com.threshold.toolbox;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ByteRing} with zero-copy write: reserve space on ring memory, fill it, then commit.
+ *
+ * <p> implemented by single producer rings: {@link RingBuffer} and {@link SpscByteRing}.
+ * {@link MpscByteRing} is not one, a reserved slot can't be shrunk on commit
+ * once other producers claimed after it. </p>
+ */
+public interface ZeroCopyByteRing extends ByteRing {
+
+    /**
+     * reserve free space on ring memory for zero-copy write (producer side).
+     * <p> the returned array and it's ByteBuffers are reused on next reserve, do not hold them. </p>
+     *
+     * @param len how long you want to write
+     * @return one region, or two regions if reserved space wraps around the end of ring.
+     * empty array if ring is full
+     */
+    ByteBuffer[] reserveWrite(int len);
+
+    /**
+     * publish data which already put to regions returned by {@link #reserveWrite(int)}.
+     *
+     * @param len how long you filled, should not exceed reserved len
+     * @return real committed len
+     */
+    int commitWrite(int len);
+}
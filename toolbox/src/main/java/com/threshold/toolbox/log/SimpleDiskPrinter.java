@@ -10,6 +10,7 @@ import androidx.annotation.Nullable;
 import com.threshold.toolbox.AsyncFileWriter;
 
 import java.io.File;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -26,7 +27,7 @@ public class SimpleDiskPrinter implements Printer {
 
     private final boolean mIsAlsoOutputParent;
     private final Printer mParentPrinter;
-    private final AsyncFileWriter mFileWriter;
+    private final OutputStream mFileWriter;
     private volatile boolean mFileWriterInvalid = false;
     private final int mMyPid;
 
@@ -42,7 +43,19 @@ public class SimpleDiskPrinter implements Printer {
      */
     public SimpleDiskPrinter(@NonNull final File toSaveLogFile, final int logBufferSize,
                              @Nullable final Printer parent, final boolean isAlsoOutputParent) {
-        this.mFileWriter = new AsyncFileWriter(toSaveLogFile, logBufferSize);
+        this(new AsyncFileWriter(toSaveLogFile, logBufferSize), parent, isAlsoOutputParent);
+    }
+
+    /**
+     * Create a disk printer: log it to output, such as {@link com.threshold.toolbox.MappedAppendWriter}
+     *
+     * @param output             the destination of log, should be thread-safe. closed on write error
+     * @param parent             a parent printer. could be null. OR maybe you could use LogcatPrinter.
+     * @param isAlsoOutputParent used to determine whether the parent printer is also need print
+     */
+    public SimpleDiskPrinter(@NonNull final OutputStream output,
+                             @Nullable final Printer parent, final boolean isAlsoOutputParent) {
+        this.mFileWriter = output;
         this.mParentPrinter = parent;
         this.mIsAlsoOutputParent = (null != this.mParentPrinter) && isAlsoOutputParent;
         this.mMyPid = Process.myPid();
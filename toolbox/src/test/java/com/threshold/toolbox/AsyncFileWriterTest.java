@@ -0,0 +1,365 @@
+package com.threshold.toolbox;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+public class AsyncFileWriterTest {
+
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+
+    private static byte[] readFile(final File file) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = file.getName().endsWith(".gz") ?
+                new GZIPInputStream(new FileInputStream(file)) : new FileInputStream(file)) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    // close is async, wait worker finish the file
+    private static byte[] awaitFile(final File file, final int len) throws Exception {
+        for (int i = 0; i < 500 && file.length() < len; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(20);
+        return readFile(file);
+    }
+
+    private static byte[] writeLines(final AsyncFileWriter writer, final int count) throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            final byte[] line = ("line " + i + "\n").getBytes();
+            writer.write(line);
+            expected.write(line);
+        }
+        writer.close();
+        return expected.toByteArray();
+    }
+
+    // rolling is done on worker, so all segments are in place once the sync completes
+    private static byte[] writeLinesAndSync(final AsyncFileWriter writer, final int count) throws Exception {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            final byte[] line = ("line " + i + "\n").getBytes();
+            writer.write(line);
+            expected.write(line);
+        }
+        writer.flushAndSync().get(10, TimeUnit.SECONDS);
+        writer.close();
+        return expected.toByteArray();
+    }
+
+    // background work without completion signal, poll it with a deadline
+    private static void awaitCondition(final Callable<Boolean> condition) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.call()) {
+            Assert.assertTrue("condition not met in time", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private void assertWritten(final AsyncFileWriter.Backend backend, final SerialWorker worker) throws Exception {
+        final File file = new File(mTempFolder.getRoot(), backend + "/out.txt");
+        final AsyncFileWriter writer = new AsyncFileWriter(file, new SpscByteRing(4096), null,
+                backend, 0, 5, worker);
+        final byte[] expected = writeLines(writer, 20000);
+        Assert.assertArrayEquals(expected, awaitFile(file, expected.length));
+        Assert.assertEquals(0, writer.getDroppedBytes());
+    }
+
+    @Test
+    public void testStreamBackendOnExecutorWorker() throws Exception {
+        assertWritten(AsyncFileWriter.Backend.STREAM, new ExecutorSerialWorker("test"));
+    }
+
+    @Test
+    public void testChannelBackendOnDefaultWorker() throws Exception {
+        assertWritten(AsyncFileWriter.Backend.FILE_CHANNEL, null);
+    }
+
+    @Test
+    public void testVirtualThreadWorker() throws Exception {
+        Assume.assumeTrue(ExecutorSerialWorker.isVirtualThreadSupported());
+        assertWritten(AsyncFileWriter.Backend.FILE_CHANNEL, ExecutorSerialWorker.newVirtualThreadWorker("test"));
+    }
+
+    // channel backend has no java side buffer, file length is what worker drained
+    private static void awaitLength(final File file, final long len) throws Exception {
+        awaitCondition(() -> file.length() >= len);
+    }
+
+    @Test
+    public void testWakeAfterMaxLatency() throws Exception {
+        final File file = mTempFolder.newFile();
+        final AsyncFileWriter writer = new AsyncFileWriter(file, new SpscByteRing(4096), null,
+                AsyncFileWriter.Backend.FILE_CHANNEL, 1024, 1000, new ExecutorSerialWorker("test"));
+        final long start = System.nanoTime();
+        writer.write(new byte[100]);
+        writer.write(new byte[100]);
+        // below high water mark, worker not woken until max latency
+        awaitLength(file, 200);
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("woken after " + elapsedMs + "ms", elapsedMs >= 1000);
+        Assert.assertEquals(200, file.length());
+        writer.close();
+    }
+
+    @Test
+    public void testWakeOnHighWaterMark() throws Exception {
+        final File file = mTempFolder.newFile();
+        final AsyncFileWriter writer = new AsyncFileWriter(file, new SpscByteRing(4096), null,
+                AsyncFileWriter.Backend.FILE_CHANNEL, 1024, 60000, new ExecutorSerialWorker("test"));
+        writer.write(new byte[100]);
+        // crosses high water mark, worker woken at once instead of one minute later
+        writer.write(new byte[1000]);
+        awaitLength(file, 1100);
+        Assert.assertEquals(1100, file.length());
+        writer.close();
+    }
+
+    @Test
+    public void testRollBySize() throws Exception {
+        final File file = mTempFolder.newFile("roll.log");
+        final AsyncFileWriter writer = new AsyncFileWriter(file, new SpscByteRing(4096), null,
+                AsyncFileWriter.Backend.FILE_CHANNEL, 0, 5, new ExecutorSerialWorker("test"));
+        writer.setRollingPolicy(RollingPolicy.bySize(10000));
+        final byte[] expected = writeLinesAndSync(writer, 20000);
+
+        final List<File> segments = RollingPolicy.listSegments(file);
+        Assert.assertTrue(segments.size() > 10);
+        Collections.reverse(segments);
+        final ByteArrayOutputStream all = new ByteArrayOutputStream();
+        for (File segment : segments) {
+            Assert.assertTrue(segment.length() <= 10000);
+            all.write(readFile(segment));
+        }
+        all.write(readFile(file));
+        Assert.assertArrayEquals(expected, all.toByteArray());
+    }
+
+    @Test
+    public void testRollRetentionAndCompress() throws Exception {
+        final File file = mTempFolder.newFile("roll.pcm");
+        final AsyncFileWriter writer = new AsyncFileWriter(file, new SpscByteRing(4096), null,
+                AsyncFileWriter.Backend.STREAM, 0, 5, new ExecutorSerialWorker("test"));
+        writer.setRollingPolicy(RollingPolicy.bySize(10000).setMaxFiles(3).setCompress(true));
+        writeLinesAndSync(writer, 20000);
+
+        // compress and retention run on housekeeper thread, a segment is gzipped before the plain one deleted
+        awaitCondition(() -> {
+            final List<File> segments = RollingPolicy.listSegments(file);
+            for (File segment : segments) {
+                if (!segment.getName().endsWith(".gz")) {
+                    return false;
+                }
+            }
+            return segments.size() == 3;
+        });
+        final List<File> segments = RollingPolicy.listSegments(file);
+        Assert.assertTrue(new String(readFile(segments.get(0))).contains("\nline "));
+    }
+
+    @Test
+    public void testSpillKeepsOrder() throws Exception {
+        final File file = mTempFolder.newFile();
+        final AsyncFileWriter writer = new AsyncFileWriter(file, new SpscByteRing(4096), null,
+                AsyncFileWriter.Backend.STREAM, 0, 5, new ExecutorSerialWorker("test"));
+        writer.setOverflowPolicy(AsyncFileWriter.OverflowPolicy.SPILL, -1, 4 * 1024 * 1024);
+        final byte[] expected = writeLines(writer, 50000);
+        Assert.assertArrayEquals(expected, awaitFile(file, expected.length));
+        Assert.assertEquals(0, writer.getDroppedBytes());
+    }
+
+    // stream of len bytes, each byte tells it's position
+    private static byte[] pattern(final int len) {
+        final byte[] data = new byte[len];
+        for (int i = 0; i < len; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        return data;
+    }
+
+    // worker thread is stuck until the latch counted down, so ring stays full
+    private static SerialWorker blockedWorker(final CountDownLatch release) {
+        final SerialWorker worker = new ExecutorSerialWorker("test");
+        worker.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        return worker;
+    }
+
+    private AsyncFileWriter newBlockedWriter(final File file, final CountDownLatch release) {
+        return new AsyncFileWriter(file, new SpscByteRing(4096), null,
+                AsyncFileWriter.Backend.STREAM, 0, 5, blockedWorker(release));
+    }
+
+    @Test
+    public void testDropNewestDropsWholeWrite() throws Exception {
+        final File file = mTempFolder.newFile();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AsyncFileWriter writer = newBlockedWriter(file, release);
+        writer.setOverflowPolicy(AsyncFileWriter.OverflowPolicy.DROP_NEWEST);
+        final byte[] data = pattern(10000);
+        for (int i = 0; i < data.length; i += 100) {
+            writer.write(data, i, 100);
+        }
+        release.countDown();
+        writer.close();
+
+        // 40 writes fit in ring, the 41st has only 96 bytes room and is dropped as a whole
+        Assert.assertEquals(6000, writer.getDroppedBytes());
+        final byte[] written = awaitFile(file, 4000);
+        Assert.assertEquals(data.length, written.length + writer.getDroppedBytes());
+        Assert.assertArrayEquals(Arrays.copyOf(data, 4000), written);
+    }
+
+    @Test
+    public void testDropOldestKeepsNewest() throws Exception {
+        final File file = mTempFolder.newFile();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AsyncFileWriter writer = newBlockedWriter(file, release);
+        writer.setOverflowPolicy(AsyncFileWriter.OverflowPolicy.DROP_OLDEST);
+        final byte[] data = pattern(15000);
+        for (int i = 0; i < 10000; i += 100) {
+            writer.write(data, i, 100);
+        }
+        Assert.assertEquals(10000 - 4096, writer.getDroppedBytes());
+        // larger than ring, only the tail of it is kept
+        writer.write(data, 10000, 5000);
+        release.countDown();
+        writer.close();
+
+        Assert.assertEquals(data.length - 4096, writer.getDroppedBytes());
+        final byte[] written = awaitFile(file, 4096);
+        Assert.assertEquals(data.length, written.length + writer.getDroppedBytes());
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, data.length - 4096, data.length), written);
+    }
+
+    @Test
+    public void testBlockTimeout() throws Exception {
+        final File file = mTempFolder.newFile();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AsyncFileWriter writer = newBlockedWriter(file, release);
+        writer.setOverflowPolicy(AsyncFileWriter.OverflowPolicy.BLOCK, 100, 0);
+        final byte[] data = pattern(10000);
+        final long start = System.nanoTime();
+        try {
+            writer.write(data);
+            Assert.fail("write should time out");
+        } catch (InterruptedIOException e) {
+            // ring is filled by the first two half-ring slices, then nothing moves
+            Assert.assertEquals(4096, e.bytesTransferred);
+        }
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertEquals(data.length - 4096, writer.getDroppedBytes());
+        release.countDown();
+        writer.close();
+
+        final byte[] written = awaitFile(file, 4096);
+        Assert.assertEquals(data.length, written.length + writer.getDroppedBytes());
+        Assert.assertArrayEquals(Arrays.copyOf(data, 4096), written);
+    }
+
+    private void assertSynced(final AsyncFileWriter.Backend backend,
+                              final AsyncFileWriter.Durability durability) throws Exception {
+        final File file = new File(mTempFolder.getRoot(), backend + "-" + durability + ".txt");
+        final AsyncFileWriter writer = new AsyncFileWriter(file, new SpscByteRing(4096), null,
+                backend, 0, 1000, new ExecutorSerialWorker("test"));
+        writer.setDurability(durability, 20);
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final byte[] line = ("line " + i + "\n").getBytes();
+            writer.write(line);
+            expected.write(line);
+            if (i % 100 == 99) {
+                futures.add(writer.flushAndSync());
+            }
+        }
+        for (Future<Void> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        // data is in file before close
+        Assert.assertArrayEquals(expected.toByteArray(), readFile(file));
+        writer.close();
+    }
+
+    @Test
+    public void testFlushAndSync() throws Exception {
+        assertSynced(AsyncFileWriter.Backend.STREAM, AsyncFileWriter.Durability.NONE);
+        assertSynced(AsyncFileWriter.Backend.FILE_CHANNEL, AsyncFileWriter.Durability.GROUP_COMMIT);
+        assertSynced(AsyncFileWriter.Backend.STREAM, AsyncFileWriter.Durability.PERIODIC);
+    }
+
+    @Test
+    public void testFlushAndSyncFailsOnWorkerError() throws Exception {
+        final AtomicBoolean broken = new AtomicBoolean();
+        // ring fails on read like a writer in error state, worker gets IllegalStateException
+        final SpscByteRing ring = new SpscByteRing(4096) {
+            @Override
+            public int read(final byte[] buffer, final int offset, final int len) {
+                if (broken.get()) {
+                    throw new IllegalStateException("broken");
+                }
+                return super.read(buffer, offset, len);
+            }
+        };
+        final AsyncFileWriter writer = new AsyncFileWriter(mTempFolder.newFile(), ring, null,
+                AsyncFileWriter.Backend.STREAM, 0, 1000, new ExecutorSerialWorker("test"));
+        writer.write("pending".getBytes());
+        broken.set(true);
+        try {
+            writer.flushAndSync().get(5, TimeUnit.SECONDS);
+            Assert.fail("sync should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+            Assert.assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testFlushAndSyncAfterClose() throws Exception {
+        final AsyncFileWriter writer = new AsyncFileWriter(mTempFolder.newFile(), new SpscByteRing(4096), null,
+                AsyncFileWriter.Backend.STREAM, 0, 5, new ExecutorSerialWorker("test"));
+        writer.setDurability(AsyncFileWriter.Durability.GROUP_COMMIT, 1000);
+        writer.write("pending".getBytes());
+        final Future<Void> future = writer.flushAndSync();
+        writer.close();
+        // close syncs pending waiters without waiting the group commit window
+        future.get(500, TimeUnit.MILLISECONDS);
+    }
+
+}
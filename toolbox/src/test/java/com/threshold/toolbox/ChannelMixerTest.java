@@ -0,0 +1,110 @@
+package com.threshold.toolbox;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class ChannelMixerTest {
+
+    private static byte[] random(final int len) {
+        final byte[] data = new byte[len];
+        new Random(len).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testRouteSameUnitIsExact() {
+        // 6 mic array, pick mic 5 and 0, then a silent channel
+        final int frames = 1000;
+        for (Resample.SampleUnit unit : Resample.SampleUnit.values()) {
+            final int size = unit.getBytesPerSample();
+            final byte[] in = random(frames * 6 * size);
+            final ChannelMixer mixer = ChannelMixer.route(6, new int[]{5, 0, -1}, unit, unit);
+            final BufferWrapper out = new BufferWrapper(mixer.getOutputBytes(frames));
+            Assert.assertEquals(frames, mixer.process(new BufferWrapper(in, in.length), out));
+            Assert.assertEquals(frames * 3 * size, out.getBufferUsed());
+            for (int f = 0; f < frames; f++) {
+                for (int b = 0; b < size; b++) {
+                    Assert.assertEquals(in[(f * 6 + 5) * size + b], out.getBuffer()[(f * 3) * size + b]);
+                    Assert.assertEquals(in[(f * 6) * size + b], out.getBuffer()[(f * 3 + 1) * size + b]);
+                    Assert.assertEquals(Resample.SampleUnit.INT8 == unit ? (byte) 128 : 0,
+                            out.getBuffer()[(f * 3 + 2) * size + b]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRouteWithConversion() {
+        // stereo INT16 -> swapped INT32, exact through integer path
+        final int frames = 600;
+        final byte[] in = random(frames * 4);
+        final ChannelMixer mixer = ChannelMixer.route(2, new int[]{1, 0}, Resample.SampleUnit.INT16,
+                Resample.SampleUnit.INT32);
+        final byte[] out = new byte[mixer.getOutputBytes(frames)];
+        mixer.process(in, 0, frames, out, 0);
+        for (int f = 0; f < frames; f++) {
+            Assert.assertEquals(Resample.readInt16LE(in, f * 4 + 2) << 16, Resample.readInt32LE(out, f * 8));
+            Assert.assertEquals(Resample.readInt16LE(in, f * 4) << 16, Resample.readInt32LE(out, f * 8 + 4));
+        }
+    }
+
+    @Test
+    public void testDownmixToMonoFloat() {
+        final int frames = 300;
+        final byte[] in = new byte[frames * 4 * 2];
+        for (int f = 0; f < frames; f++) {
+            // 4 mics
+            Resample.writeInt16LE(in, f * 8, (short) 1000);
+            Resample.writeInt16LE(in, f * 8 + 2, (short) 3000);
+            Resample.writeInt16LE(in, f * 8 + 4, (short) -2000);
+            Resample.writeInt16LE(in, f * 8 + 6, (short) f);
+        }
+        final ChannelMixer mixer = ChannelMixer.downmixToMono(4, Resample.SampleUnit.INT16, Resample.SampleUnit.FLOAT32);
+        Assert.assertEquals(1, mixer.getOutChannels());
+        final BufferWrapper out = new BufferWrapper(mixer.getOutputBytes(frames));
+        mixer.process(new BufferWrapper(in, in.length), out);
+        for (int f = 0; f < frames; f++) {
+            Assert.assertEquals((2000 + f) / 4f / 32768, Resample.readFloat32LE(out.getBuffer(), f * 4), 1e-7);
+        }
+    }
+
+    @Test
+    public void testUpmixAndClamp() {
+        // mono -> stereo, right is boosted and clamped
+        final ChannelMixer mixer = new ChannelMixer(new float[][]{{0.5f}, {4f}}, Resample.SampleUnit.INT16);
+        final byte[] in = new byte[4];
+        Resample.writeInt16LE(in, 0, (short) 1000);
+        Resample.writeInt16LE(in, 2, (short) -20000);
+        final byte[] out = new byte[8];
+        mixer.process(in, 0, 2, out, 0);
+        Assert.assertEquals(500, Resample.readInt16LE(out, 0));
+        Assert.assertEquals(4000, Resample.readInt16LE(out, 2));
+        Assert.assertEquals(-10000, Resample.readInt16LE(out, 4));
+        Assert.assertEquals(Short.MIN_VALUE, Resample.readInt16LE(out, 6));
+    }
+
+    @Test
+    public void testShortBuffersAreOutOfBounds() {
+        final ChannelMixer mixer = ChannelMixer.downmixToMono(2, Resample.SampleUnit.INT16, Resample.SampleUnit.INT16);
+        try {
+            mixer.process(new byte[8], 0, 3, new byte[6], 0);
+            Assert.fail("input is short");
+        } catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+        try {
+            mixer.process(new byte[12], 0, 3, new byte[4], 0);
+            Assert.fail("output is short");
+        } catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadRoute() {
+        ChannelMixer.route(2, new int[]{2}, Resample.SampleUnit.INT16, Resample.SampleUnit.INT16);
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.threshold.toolbox;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class MappedAppendWriterTest {
+
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+
+    private static byte[] readFile(final File file) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new FileInputStream(file)) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testWriteAcrossRegions() throws Exception {
+        final File file = new File(mTempFolder.getRoot(), "sub/mapped.txt");
+        final MappedAppendWriter writer = new MappedAppendWriter(file, 4096);
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 5000; i++) {
+            final byte[] line = ("line " + i + "\n").getBytes();
+            if (i % 2 == 0) {
+                writer.write(line);
+            } else {
+                writer.write(ByteBuffer.wrap(line));
+            }
+            expected.write(line);
+        }
+        writer.write(new byte[10000]);
+        expected.write(new byte[10000]);
+        Assert.assertEquals(expected.size(), writer.length());
+        // file is extended in regions until closed
+        Assert.assertEquals(0, file.length() % 4096);
+        writer.sync();
+        writer.close();
+        Assert.assertArrayEquals(expected.toByteArray(), readFile(file));
+    }
+
+    @Test
+    public void testTruncateOldContent() throws Exception {
+        final File file = mTempFolder.newFile();
+        MappedAppendWriter writer = new MappedAppendWriter(file, 4096);
+        writer.write(new byte[9000]);
+        writer.close();
+        writer = new MappedAppendWriter(file, 4096);
+        writer.write(new byte[]{1, 2, 3});
+        writer.close();
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, readFile(file));
+    }
+
+    @Test
+    public void testConcurrentWritesKeepContiguous() throws Exception {
+        final File file = mTempFolder.newFile();
+        final MappedAppendWriter writer = new MappedAppendWriter(file, 4096);
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final byte[] record = new byte[100];
+            Arrays.fill(record, (byte) t);
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 1000; i++) {
+                            writer.write(record);
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.close();
+        final byte[] data = readFile(file);
+        Assert.assertEquals(threads.length * 1000 * 100, data.length);
+        for (int i = 0; i < data.length; i += 100) {
+            for (int j = 1; j < 100; j++) {
+                Assert.assertEquals(data[i], data[i + j]);
+            }
+        }
+    }
+
+}
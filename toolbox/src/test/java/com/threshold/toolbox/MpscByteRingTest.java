@@ -0,0 +1,127 @@
+package com.threshold.toolbox;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class MpscByteRingTest {
+
+    @Test
+    public void testWriteIsAllOrNothing() {
+        final MpscByteRing ring = new MpscByteRing(16);
+        Assert.assertEquals(10, ring.write(new byte[10]));
+        Assert.assertEquals(0, ring.write(new byte[7]));
+        Assert.assertEquals(6, ring.availableWriteLen());
+        Assert.assertEquals(6, ring.write(ByteBuffer.wrap(new byte[6])));
+        Assert.assertTrue(ring.isFull());
+
+        Assert.assertEquals(10, ring.discard(10));
+        final byte[] data = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        Assert.assertEquals(10, ring.write(data));
+        final byte[] out = new byte[16];
+        Assert.assertEquals(16, ring.read(out));
+        for (int i = 0; i < data.length; i++) {
+            Assert.assertEquals(data[i], out[6 + i]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordExceedCapacity() {
+        new MpscByteRing(16).write(new byte[17]);
+    }
+
+    @Test
+    public void testBadWriteNotBlockOtherProducers() throws InterruptedException {
+        final MpscByteRing ring = new MpscByteRing(16);
+        try {
+            ring.write(new byte[4], 2, 4);
+            Assert.fail("offset + len exceed data");
+        } catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+        final int[] written = {-1};
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                written[0] = ring.write(new byte[]{1, 2, 3});
+            }
+        });
+        producer.start();
+        producer.join(5000);
+        Assert.assertFalse("producer is stuck on the bad write", producer.isAlive());
+        Assert.assertEquals(3, written[0]);
+        Assert.assertEquals(3, ring.availableReadLen());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final MpscByteRing ring = new MpscByteRing(512);
+        final int producerCount = 3;
+        final int recordCount = 2000;
+        // record: [len][producer][seq...], len is 3 ~ 20
+        int total = 0;
+        for (int seq = 0; seq < recordCount; seq++) {
+            total += recordLen(seq);
+        }
+        total *= producerCount;
+
+        final Thread[] producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final byte[] record = new byte[20];
+                    for (int seq = 0; seq < recordCount; seq++) {
+                        final int len = recordLen(seq);
+                        record[0] = (byte) len;
+                        record[1] = (byte) producer;
+                        for (int i = 2; i < len; i++) {
+                            record[i] = (byte) seq;
+                        }
+                        while (ring.write(record, 0, len) == 0) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            producers[p].start();
+        }
+
+        final byte[] received = new byte[total];
+        int receivedLen = 0;
+        while (receivedLen < total) {
+            final int read = ring.read(received, receivedLen, total - receivedLen);
+            if (read < 1) {
+                Thread.yield();
+            }
+            receivedLen += read;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        Assert.assertTrue(ring.isEmpty());
+
+        final int[] nextSeq = new int[producerCount];
+        int pos = 0;
+        while (pos < total) {
+            final int len = received[pos];
+            final int producer = received[pos + 1];
+            final int seq = nextSeq[producer]++;
+            Assert.assertEquals(recordLen(seq), len);
+            for (int i = 2; i < len; i++) {
+                Assert.assertEquals((byte) seq, received[pos + i]);
+            }
+            pos += len;
+        }
+        for (int seq : nextSeq) {
+            Assert.assertEquals(recordCount, seq);
+        }
+    }
+
+    private static int recordLen(int seq) {
+        return 3 + seq % 18;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.threshold.toolbox;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PolyphaseResamplerTest {
+
+    private static float[] sine(final int sampleRate, final double frequency, final int frames) {
+        final float[] data = new float[frames];
+        for (int i = 0; i < frames; i++) {
+            data[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+        }
+        return data;
+    }
+
+    private static double sineAt(final int sampleRate, final double frequency, final double frame) {
+        return 0.5 * Math.sin(2 * Math.PI * frequency * frame / sampleRate);
+    }
+
+    private static float[] resample(final PolyphaseResampler resampler, final float[] in, final int blockFrames) {
+        final float[][] out = new float[1][resampler.getMaxOutputFrames(in.length)];
+        int outFrames = 0;
+        for (int i = 0; i < in.length; i += blockFrames) {
+            final int n = Math.min(blockFrames, in.length - i);
+            outFrames += resampler.process(new float[][]{in}, i, n, out, outFrames);
+        }
+        final float[] result = new float[outFrames];
+        System.arraycopy(out[0], 0, result, 0, outFrames);
+        return result;
+    }
+
+    // rms of the steady part, skip filter delay and tail
+    private static double rms(final float[] data, final int skip) {
+        double sum = 0;
+        for (int i = skip; i < data.length - skip; i++) {
+            sum += data[i] * data[i];
+        }
+        return Math.sqrt(sum / (data.length - 2 * skip));
+    }
+
+    @Test
+    public void testPassBand44kTo16k() {
+        final PolyphaseResampler resampler = new PolyphaseResampler(44100, 16000, 1, Resample.SampleUnit.FLOAT32);
+        final float[] out = resample(resampler, sine(44100, 1000, 44100), 441);
+        Assert.assertEquals(16000, out.length);
+        final double delay = resampler.getDelayFrames();
+        for (int i = 200; i < out.length - 200; i++) {
+            Assert.assertEquals(sineAt(16000, 1000, i - delay), out[i], 0.01);
+        }
+    }
+
+    @Test
+    public void testAntiAlias48kTo16k() {
+        final PolyphaseResampler resampler = new PolyphaseResampler(48000, 16000, 1, Resample.SampleUnit.FLOAT32);
+        // 10k is above the 8k nyquist of output, must not fold back to 6k
+        final float[] out = resample(resampler, sine(48000, 10000, 48000), 480);
+        Assert.assertTrue(rms(out, 200) < 0.5 / Math.sqrt(2) / 1000);
+    }
+
+    @Test
+    public void testBlocksMatchWhole() {
+        final float[] in = sine(8000, 440, 8000);
+        final float[] whole = resample(new PolyphaseResampler(8000, 44100, 1, Resample.SampleUnit.FLOAT32), in, in.length);
+        final float[] blocks = resample(new PolyphaseResampler(8000, 44100, 1, Resample.SampleUnit.FLOAT32), in, 80);
+        Assert.assertArrayEquals(whole, blocks, 0f);
+    }
+
+    @Test
+    public void testInt16Interleaved() {
+        final int channels = 2;
+        final PolyphaseResampler resampler = new PolyphaseResampler(48000, 16000, channels, Resample.SampleUnit.INT16);
+        final float[] left = sine(48000, 500, 4800);
+        final BufferWrapper in = new BufferWrapper(480 * channels * 2);
+        final BufferWrapper out = new BufferWrapper(resampler.getMaxOutputFrames(480) * channels * 2);
+        final short[] outLeft = new short[1600];
+        int outFrames = 0;
+        for (int block = 0; block < 10; block++) {
+            for (int i = 0; i < 480; i++) {
+                final short sample = (short) (left[block * 480 + i] * 32767);
+                Resample.writeInt16LE(in.getBuffer(), i * 4, sample);
+                Resample.writeInt16LE(in.getBuffer(), i * 4 + 2, (short) -sample);
+            }
+            in.setBufferUsed(480 * 4);
+            final int n = resampler.process(in, out);
+            Assert.assertEquals(n * 4, out.getBufferUsed());
+            for (int i = 0; i < n; i++) {
+                outLeft[outFrames + i] = Resample.readInt16LE(out.getBuffer(), i * 4);
+                Assert.assertEquals(-outLeft[outFrames + i], Resample.readInt16LE(out.getBuffer(), i * 4 + 2), 1);
+            }
+            outFrames += n;
+        }
+        Assert.assertEquals(1600, outFrames);
+        final double delay = resampler.getDelayFrames();
+        for (int i = 100; i < 1500; i++) {
+            Assert.assertEquals(sineAt(16000, 500, i - delay) * 32767, outLeft[i], 200);
+        }
+    }
+
+}
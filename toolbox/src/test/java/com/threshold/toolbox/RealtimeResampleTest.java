@@ -1,6 +1,8 @@
 package com.threshold.toolbox;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.*;
 import java.nio.file.Files;
@@ -14,12 +16,15 @@ import java.util.Queue;
  */
 public class RealtimeResampleTest {
 
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+
     @Test
     public void test() {
 // 单独测试8kHz到16kHz转换（使用已有文件）
         RealtimeResampleTest.test8kTo16kRealtime(
-                "G:\\temp\\audio\\8k.pcm",      // 输入文件路径（如果不存在则生成正弦波）
-                "G:\\temp\\audio\\output_8k_to_16k.pcm", // 输出文件路径
+                new File(mTempFolder.getRoot(), "8k.pcm").getPath(),      // 输入文件路径（如果不存在则生成正弦波）
+                new File(mTempFolder.getRoot(), "output_8k_to_16k.pcm").getPath(), // 输出文件路径
                 5.0f // 音频不存在时生成音频时长
         );
 
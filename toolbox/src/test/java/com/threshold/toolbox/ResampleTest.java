@@ -7,10 +7,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class ResampleTest {
 
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+
     /**
      * 测试示例
      */
@@ -22,12 +28,104 @@ public class ResampleTest {
 //        testUpSample();
 
         ResampleTestCase.test8kTo16k(
-                "G:\\temp\\audio\\8k.pcm",      // 输入文件路径（如果不存在则生成正弦波）
-                "G:\\temp\\audio\\output_8k_to_16k.pcm", // 输出文件路径
+                new File(mTempFolder.getRoot(), "8k.pcm").getPath(),      // 输入文件路径（如果不存在则生成正弦波）
+                new File(mTempFolder.getRoot(), "output_8k_to_16k.pcm").getPath(), // 输出文件路径
                 5.0f                  // 音频时长（秒）
         );
     }
 
+    @Test
+    public void testUpSampleLinearPlanar() {
+        final int channels = 2;
+        final int inSamples = 160;
+        final int upRatio = 3;
+        final short[] in = new short[inSamples * channels];
+        final byte[] inBytes = new byte[in.length * 2];
+        for (int i = 0; i < in.length; i++) {
+            in[i] = (short) (Math.sin(i * 0.05) * 30000);
+            Resample.writeInt16LE(inBytes, i * 2, in[i]);
+        }
+        final short[] out = new short[(inSamples - 1) * upRatio * channels];
+        Assert.assertEquals((inSamples - 1) * upRatio, Resample.upSampleLinear(in, inSamples, channels, upRatio, out));
+
+        final BufferWrapper outBuffer = new BufferWrapper(out.length * 2);
+        Resample.upSampleLinear(new BufferWrapper(inBytes, inBytes.length), channels, 16000,
+                Resample.SampleUnit.INT16, 48000, outBuffer);
+        Assert.assertEquals(out.length * 2, outBuffer.getBufferUsed());
+        for (int i = 0; i < (inSamples - 1) * upRatio; i++) {
+            for (int ch = 0; ch < channels; ch++) {
+                final short sample1 = in[(i / upRatio) * channels + ch];
+                final short sample2 = in[(i / upRatio + 1) * channels + ch];
+                final float t = (float) (i % upRatio) / upRatio;
+                final short expected = (short) Math.round(sample1 * (1 - t) + sample2 * t);
+                Assert.assertEquals(expected, out[i * channels + ch]);
+                Assert.assertEquals(expected, Resample.readInt16LE(outBuffer.getBuffer(), (i * channels + ch) * 2));
+            }
+        }
+    }
+
+    @Test
+    public void testUpSampleLinearPlanarInChunks() {
+        // many chunks of planar scratch, output capacity ends in the middle of one
+        final int channels = 2;
+        final int inSamples = 5000;
+        final int upRatio = 3;
+        final short[] in = new short[inSamples * channels];
+        final byte[] inBytes = new byte[in.length * 2];
+        for (int i = 0; i < in.length; i++) {
+            in[i] = (short) (Math.sin(i * 0.01) * 30000);
+            Resample.writeInt16LE(inBytes, i * 2, in[i]);
+        }
+        final int outSamples = (inSamples - 1) * upRatio;
+        final short[] out = new short[outSamples * channels];
+        Assert.assertEquals(outSamples, Resample.upSampleLinear(in, inSamples, channels, upRatio, out));
+
+        final int truncated = 10000;
+        final BufferWrapper outBuffer = new BufferWrapper(truncated * channels * 2 + 1);
+        Resample.upSampleLinear(new BufferWrapper(inBytes, inBytes.length), channels, 16000,
+                Resample.SampleUnit.INT16, 48000, outBuffer);
+        Assert.assertEquals(truncated * channels * 2, outBuffer.getBufferUsed());
+        for (int i = 0; i < outSamples; i++) {
+            for (int ch = 0; ch < channels; ch++) {
+                final short sample1 = in[(i / upRatio) * channels + ch];
+                final short sample2 = in[(i / upRatio + 1) * channels + ch];
+                final float t = (float) (i % upRatio) / upRatio;
+                final short expected = (short) Math.round(sample1 * (1 - t) + sample2 * t);
+                Assert.assertEquals(expected, out[i * channels + ch]);
+                if (i < truncated) {
+                    Assert.assertEquals(expected, Resample.readInt16LE(outBuffer.getBuffer(), (i * channels + ch) * 2));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUpSampleLinearInt32KeepsFullPrecision() {
+        // stereo, neighbours differ by 2 LSB, far beyond 24 bits of float
+        final int[] in = {
+                123456789, Integer.MAX_VALUE - 3,
+                123456791, Integer.MAX_VALUE - 1,
+                -2000000001, Integer.MIN_VALUE,
+        };
+        final byte[] inBytes = new byte[in.length * 4];
+        for (int i = 0; i < in.length; i++) {
+            Resample.writeInt32LE(inBytes, i * 4, in[i]);
+        }
+        final BufferWrapper outBuffer = new BufferWrapper(4 * 2 * 4);
+        Resample.upSampleLinear(new BufferWrapper(inBytes, inBytes.length), 2, 16000,
+                Resample.SampleUnit.INT32, 32000, outBuffer);
+        Assert.assertEquals(4 * 2 * 4, outBuffer.getBufferUsed());
+        final int[] expected = {
+                123456789, Integer.MAX_VALUE - 3,
+                123456790, Integer.MAX_VALUE - 2,
+                123456791, Integer.MAX_VALUE - 1,
+                -938271605, -1,
+        };
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], Resample.readInt32LE(outBuffer.getBuffer(), i * 4));
+        }
+    }
+
     private static void testDownSample() {
         System.out.println("=== 测试降采样 ===");
 
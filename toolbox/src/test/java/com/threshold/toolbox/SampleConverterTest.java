@@ -0,0 +1,107 @@
+package com.threshold.toolbox;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class SampleConverterTest {
+
+    private static final Resample.SampleUnit[] INTEGER_UNITS = {
+            Resample.SampleUnit.INT8, Resample.SampleUnit.INT16, Resample.SampleUnit.INT24, Resample.SampleUnit.INT32
+    };
+
+    private static byte[] random(final int len) {
+        final byte[] data = new byte[len];
+        new Random(len).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testWideningRoundTripIsExact() {
+        // more than one chunk
+        final int samples = 3000;
+        for (int i = 0; i < INTEGER_UNITS.length; i++) {
+            for (int j = i + 1; j < INTEGER_UNITS.length; j++) {
+                final Resample.SampleUnit narrow = INTEGER_UNITS[i];
+                final Resample.SampleUnit wide = INTEGER_UNITS[j];
+                final byte[] in = random(samples * narrow.getBytesPerSample());
+                final byte[] widened = new byte[samples * wide.getBytesPerSample()];
+                final byte[] back = new byte[in.length];
+                SampleConverter.convert(in, 0, narrow, widened, 0, wide, samples);
+                SampleConverter.convert(widened, 0, wide, back, 0, narrow, samples);
+                Assert.assertArrayEquals(narrow + "->" + wide, in, back);
+            }
+        }
+    }
+
+    @Test
+    public void testNarrowingRoundsAndSaturates() {
+        final byte[] in = new byte[16];
+        Resample.writeInt32LE(in, 0, 0x7FFFFFFF);
+        Resample.writeInt32LE(in, 4, 0x80000000);
+        Resample.writeInt32LE(in, 8, 0x00018000);
+        Resample.writeInt32LE(in, 12, -0x00017FFF);
+        final byte[] out = new byte[8];
+        SampleConverter.convert(in, 0, Resample.SampleUnit.INT32, out, 0, Resample.SampleUnit.INT16, 4);
+        Assert.assertEquals(Short.MAX_VALUE, Resample.readInt16LE(out, 0));
+        Assert.assertEquals(Short.MIN_VALUE, Resample.readInt16LE(out, 2));
+        Assert.assertEquals(2, Resample.readInt16LE(out, 4));
+        Assert.assertEquals(-1, Resample.readInt16LE(out, 6));
+
+        final byte[] out24 = new byte[12];
+        SampleConverter.convert(in, 0, Resample.SampleUnit.INT32, out24, 0, Resample.SampleUnit.INT24, 4);
+        Assert.assertEquals(0x7FFFFF, Resample.readInt24LE(out24, 0));
+        Assert.assertEquals(-0x800000, Resample.readInt24LE(out24, 3));
+        Assert.assertEquals(0x180, Resample.readInt24LE(out24, 6));
+    }
+
+    @Test
+    public void testFloat() {
+        final float[] values = {0f, 0.5f, -0.5f, 1f, -1f, 2f, -2f, 0.25f};
+        final byte[] int24 = new byte[values.length * 3];
+        SampleConverter.fromFloat(values, 0, values.length, Resample.SampleUnit.INT24, int24, 0);
+        Assert.assertEquals(0x400000, Resample.readInt24LE(int24, 3));
+        Assert.assertEquals(-0x400000, Resample.readInt24LE(int24, 6));
+        Assert.assertEquals(0x7FFFFF, Resample.readInt24LE(int24, 9));
+        Assert.assertEquals(-0x800000, Resample.readInt24LE(int24, 12));
+        Assert.assertEquals(0x7FFFFF, Resample.readInt24LE(int24, 15));
+
+        final byte[] int8 = new byte[values.length];
+        SampleConverter.fromFloat(values, 0, values.length, Resample.SampleUnit.INT8, int8, 0);
+        // 8-bit is unsigned
+        Assert.assertEquals(128, int8[0] & 0xFF);
+        Assert.assertEquals(255, int8[5] & 0xFF);
+        Assert.assertEquals(0, int8[6] & 0xFF);
+
+        // through FLOAT32 bytes and back is lossless for values in range
+        final byte[] float32 = new byte[values.length * 4];
+        SampleConverter.convert(int24, 0, Resample.SampleUnit.INT24, float32, 0, Resample.SampleUnit.FLOAT32, values.length);
+        final byte[] back = new byte[int24.length];
+        SampleConverter.convert(float32, 0, Resample.SampleUnit.FLOAT32, back, 0, Resample.SampleUnit.INT24, values.length);
+        Assert.assertArrayEquals(int24, back);
+        final float[] decoded = new float[values.length];
+        SampleConverter.toFloat(float32, 0, Resample.SampleUnit.FLOAT32, decoded, 0, values.length);
+        Assert.assertEquals(0.25f, decoded[7], 0f);
+        Assert.assertEquals(-1f, decoded[4], 0f);
+    }
+
+    @Test
+    public void testByteUtilConvertShortToFloat() {
+        final byte[] pcm = random(2000);
+        final byte[] out = new byte[4000];
+        ByteUtil.convertShortToFloat(pcm, out);
+        final float[] floats = ByteUtil.convertShortToFloat(pcm);
+        for (int i = 0; i < 1000; i++) {
+            final float expected = BitConverter.toInt16(pcm, i * 2) / 32768f;
+            Assert.assertEquals(expected, Resample.readFloat32LE(out, i * 4), 0f);
+            Assert.assertEquals(expected, floats[i], 0f);
+        }
+
+        final BufferWrapper out32 = new BufferWrapper(4000);
+        ByteUtil.transform16bitTo32bitSigned(new BufferWrapper(pcm, pcm.length), out32);
+        Assert.assertEquals(4000, out32.getBufferUsed());
+        Assert.assertEquals(BitConverter.toInt16(pcm, 2) << 16, Resample.readInt32LE(out32.getBuffer(), 4));
+    }
+
+}
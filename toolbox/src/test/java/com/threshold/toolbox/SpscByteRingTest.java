@@ -0,0 +1,193 @@
+package com.threshold.toolbox;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SpscByteRingTest {
+
+    @Test
+    public void testCapacityAlignedToPowOf2() {
+        Assert.assertEquals(16, new SpscByteRing(16).capacity());
+        Assert.assertEquals(1024, new SpscByteRing(1000).capacity());
+        final SpscByteRing ring = new SpscByteRing(1000);
+        Assert.assertTrue(ring.isEmpty());
+        Assert.assertEquals(1024, ring.availableWriteLen());
+    }
+
+    @Test
+    public void testWriteReadWrapAround() {
+        final ByteRing ring = new SpscByteRing(16);
+        Assert.assertEquals(10, ring.write(new byte[10]));
+        Assert.assertEquals(10, ring.discard(10));
+
+        final byte[] data = new byte[20];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Assert.assertEquals(16, ring.write(data, 2, 18));
+        Assert.assertTrue(ring.isFull());
+        Assert.assertEquals(0, ring.write(data));
+
+        final byte[] peeked = new byte[4];
+        Assert.assertEquals(4, ring.peek(peeked));
+        Assert.assertArrayEquals(new byte[]{2, 3, 4, 5}, peeked);
+
+        final byte[] out = new byte[32];
+        Assert.assertEquals(16, ring.read(out, 1, 20));
+        for (int i = 0; i < 16; i++) {
+            Assert.assertEquals(i + 2, out[i + 1]);
+        }
+        Assert.assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testByteBuffer() {
+        final ByteRing ring = new SpscByteRing(8);
+        final ByteBuffer src = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        Assert.assertEquals(8, ring.write(src));
+        Assert.assertEquals(8, src.position());
+
+        final ByteBuffer dst = ByteBuffer.allocateDirect(5);
+        Assert.assertEquals(5, ring.peek(dst));
+        Assert.assertEquals(8, ring.availableReadLen());
+        dst.clear();
+        Assert.assertEquals(5, ring.read(dst));
+        Assert.assertEquals(1, dst.get(0));
+        Assert.assertEquals(3, ring.availableReadLen());
+    }
+
+    @Test
+    public void testReserveCommitAcquireRelease() {
+        final ZeroCopyByteRing ring = new SpscByteRing(16);
+        ring.write(new byte[10]);
+        ring.discard(10);
+
+        final ByteBuffer[] writeRegions = ring.reserveWrite(12);
+        Assert.assertEquals(2, writeRegions.length);
+        byte value = 0;
+        for (ByteBuffer region : writeRegions) {
+            while (region.hasRemaining()) {
+                region.put(value++);
+            }
+        }
+        Assert.assertEquals(0, ring.availableReadLen());
+        Assert.assertEquals(12, ring.commitWrite(12));
+
+        final ByteBuffer[] readRegions = ring.acquireRead(100);
+        Assert.assertEquals(2, readRegions.length);
+        byte expected = 0;
+        for (ByteBuffer region : readRegions) {
+            while (region.hasRemaining()) {
+                Assert.assertEquals(expected++, region.get());
+            }
+        }
+        Assert.assertEquals(12, ring.releaseRead(12));
+        Assert.assertEquals(0, ring.acquireRead(1).length);
+    }
+
+    @Test
+    public void testReadAtLeastTimeout() throws InterruptedException {
+        final ByteRing ring = new SpscByteRing(16);
+        ring.write(new byte[]{1, 2, 3});
+        final byte[] buffer = new byte[8];
+        Assert.assertEquals(3, ring.readAtLeast(buffer, 4, 10));
+        Assert.assertEquals(0, ring.readAtLeast(buffer, 1, 0));
+        Assert.assertEquals(3, buffer[2]);
+    }
+
+    @Test
+    public void testBlockingWriteRead() throws InterruptedException {
+        final ByteRing ring = new SpscByteRing(16);
+        final int total = 50000;
+        final AtomicReference<Exception> error = new AtomicReference<>();
+
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final byte[] chunk = new byte[100];
+                try {
+                    for (int sent = 0; sent < total; sent += chunk.length) {
+                        for (int i = 0; i < chunk.length; i++) {
+                            chunk[i] = (byte) (sent + i);
+                        }
+                        if (ring.writeFully(chunk, 0, chunk.length, -1) != chunk.length) {
+                            throw new IllegalStateException("writeFully returned early");
+                        }
+                    }
+                } catch (Exception e) {
+                    error.set(e);
+                }
+            }
+        });
+        producer.start();
+
+        final byte[] buffer = new byte[10];
+        int received = 0;
+        while (received < total) {
+            final int min = Math.min(5, total - received);
+            final int read = ring.readAtLeast(buffer, min, 5000);
+            Assert.assertTrue(read >= min);
+            for (int i = 0; i < read; i++) {
+                Assert.assertEquals((byte) (received + i), buffer[i]);
+            }
+            received += read;
+        }
+        producer.join();
+        Assert.assertNull(error.get());
+        Assert.assertEquals(total, received);
+    }
+
+    @Test
+    public void testConcurrentProducerConsumer() throws InterruptedException {
+        final ByteRing ring = new SpscByteRing(256);
+        final int total = 1024 * 1024;
+        final AtomicReference<String> error = new AtomicReference<>();
+
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final byte[] chunk = new byte[37];
+                int sent = 0;
+                while (sent < total) {
+                    final int len = Math.min(chunk.length, total - sent);
+                    for (int i = 0; i < len; i++) {
+                        chunk[i] = (byte) (sent + i);
+                    }
+                    int written = 0;
+                    while (written < len) {
+                        final int n = ring.write(chunk, written, len - written);
+                        if (n < 1) {
+                            Thread.yield();
+                        }
+                        written += n;
+                    }
+                    sent += len;
+                }
+            }
+        });
+        producer.start();
+
+        final byte[] buffer = new byte[61];
+        int received = 0;
+        while (received < total && null == error.get()) {
+            final int read = ring.read(buffer);
+            if (read < 1) {
+                Thread.yield();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] != (byte) (received + i)) {
+                    error.set("mismatch at " + (received + i));
+                    break;
+                }
+            }
+            received += read;
+        }
+        producer.join();
+        Assert.assertNull(error.get());
+        Assert.assertTrue(ring.isEmpty());
+    }
+
+}
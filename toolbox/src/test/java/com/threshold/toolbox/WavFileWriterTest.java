@@ -0,0 +1,85 @@
+package com.threshold.toolbox;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public class WavFileWriterTest {
+
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+
+    private static ByteBuffer readFile(final File file) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            final byte[] data = new byte[(int) raf.length()];
+            raf.readFully(data);
+            return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private static String fourCC(final ByteBuffer buffer, final int offset) {
+        return new String(buffer.array(), offset, 4);
+    }
+
+    @Test
+    public void testStreamPcmAndPatchHeader() throws Exception {
+        final File file = mTempFolder.newFile("out.wav");
+        final WavFileWriter writer = new WavFileWriter(file, new SpscByteRing(4096), 16000, 2, 16);
+        final byte[] pcm = new byte[100001];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (byte) i;
+        }
+        for (int i = 0; i < pcm.length; i += 1000) {
+            writer.write(pcm, i, Math.min(1000, pcm.length - i));
+        }
+        writer.close();
+
+        final ByteBuffer wav = readFile(file);
+        // PCM padded to even size
+        Assert.assertEquals(WavFileWriter.HEADER_SIZE + pcm.length + 1, wav.limit());
+        Assert.assertEquals("RIFF", fourCC(wav, 0));
+        Assert.assertEquals(wav.limit() - 8, wav.getInt(4));
+        Assert.assertEquals("WAVE", fourCC(wav, 8));
+        Assert.assertEquals("JUNK", fourCC(wav, 12));
+        Assert.assertEquals(28, wav.getInt(16));
+        Assert.assertEquals("fmt ", fourCC(wav, 48));
+        Assert.assertEquals(2, wav.getShort(58));
+        Assert.assertEquals(16000, wav.getInt(60));
+        Assert.assertEquals(64000, wav.getInt(64));
+        Assert.assertEquals(4, wav.getShort(68));
+        Assert.assertEquals("data", fourCC(wav, 72));
+        Assert.assertEquals(pcm.length, wav.getInt(76));
+        Assert.assertArrayEquals(pcm, Arrays.copyOfRange(wav.array(), 80, 80 + pcm.length));
+    }
+
+    @Test
+    public void testPatchRf64() throws Exception {
+        final File file = mTempFolder.newFile("rf64.wav");
+        final WavFileWriter writer = new WavFileWriter(file, new SpscByteRing(4096), 48000, 1, 16);
+        writer.write(new byte[4000]);
+        writer.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            WavFileWriter.patchHeader(raf.getChannel(), 5000000000L, 2, true);
+        }
+
+        final ByteBuffer wav = readFile(file);
+        Assert.assertEquals("RF64", fourCC(wav, 0));
+        Assert.assertEquals(-1, wav.getInt(4));
+        Assert.assertEquals("ds64", fourCC(wav, 12));
+        Assert.assertEquals(28, wav.getInt(16));
+        Assert.assertEquals(5000000000L + 72, wav.getLong(20));
+        Assert.assertEquals(5000000000L, wav.getLong(28));
+        Assert.assertEquals(2500000000L, wav.getLong(36));
+        Assert.assertEquals(0, wav.getInt(44));
+        Assert.assertEquals("fmt ", fourCC(wav, 48));
+        Assert.assertEquals(-1, wav.getInt(76));
+    }
+
+}
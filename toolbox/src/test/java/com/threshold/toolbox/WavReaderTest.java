@@ -0,0 +1,128 @@
+package com.threshold.toolbox;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public class WavReaderTest {
+
+    @Rule
+    public TemporaryFolder mTempFolder = new TemporaryFolder();
+
+    private File writeFile(final byte[] data) throws IOException {
+        final File file = mTempFolder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    private static byte[] pcm(final int len) {
+        final byte[] pcm = new byte[len];
+        for (int i = 0; i < len; i++) {
+            pcm[i] = (byte) (i * 7);
+        }
+        return pcm;
+    }
+
+    @Test
+    public void testReadStandardHeader() throws Exception {
+        final byte[] pcm = pcm(3200);
+        final File file = writeFile(PcmWavUtil.pcmToWav(pcm, 1, 16000, 16));
+        try (WavReader reader = new WavReader(file)) {
+            Assert.assertEquals(WavReader.WAVE_FORMAT_PCM, reader.getAudioFormat());
+            Assert.assertEquals(1, reader.getNumChannels());
+            Assert.assertEquals(16000, reader.getSampleRate());
+            Assert.assertEquals(Resample.SampleUnit.INT16, reader.getSampleUnit());
+            Assert.assertEquals(44, reader.getDataOffset());
+            Assert.assertEquals(1600, reader.getFrameCount());
+            final ByteBuffer data = reader.getData();
+            Assert.assertTrue(data.isReadOnly());
+            Assert.assertEquals(pcm.length, data.remaining());
+            for (int i = 0; i < pcm.length; i++) {
+                Assert.assertEquals(pcm[i], data.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testReadExtensibleWithListAndFact() throws Exception {
+        final ByteBuffer wav = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(0).put("WAVE".getBytes());
+        // extensible fmt, 2ch 24 bits in 32 bits container, float sub format
+        wav.put("fmt ".getBytes()).putInt(40)
+                .putShort((short) WavReader.WAVE_FORMAT_EXTENSIBLE).putShort((short) 2)
+                .putInt(48000).putInt(48000 * 8).putShort((short) 8).putShort((short) 32)
+                .putShort((short) 22).putShort((short) 24).putInt(3)
+                .putShort((short) WavReader.WAVE_FORMAT_IEEE_FLOAT).put(new byte[14]);
+        wav.put("fact".getBytes()).putInt(4).putInt(10);
+        // odd sized LIST is padded
+        wav.put("LIST".getBytes()).putInt(17).put("INFO".getBytes())
+                .put("INAM".getBytes()).putInt(5).put("test\0".getBytes()).put((byte) 0);
+        wav.put("data".getBytes()).putInt(80);
+        for (int i = 0; i < 20; i++) {
+            wav.putFloat(i);
+        }
+        wav.putInt(4, wav.position() - 8);
+        try (WavReader reader = new WavReader(writeFile(Arrays.copyOf(wav.array(), wav.position())))) {
+            Assert.assertEquals(WavReader.WAVE_FORMAT_IEEE_FLOAT, reader.getAudioFormat());
+            Assert.assertEquals(2, reader.getNumChannels());
+            Assert.assertEquals(48000, reader.getSampleRate());
+            Assert.assertEquals(24, reader.getValidBitsPerSample());
+            Assert.assertEquals(3, reader.getChannelMask());
+            Assert.assertEquals(Resample.SampleUnit.FLOAT32, reader.getSampleUnit());
+            Assert.assertEquals(10, reader.getFactSampleCount());
+            Assert.assertEquals("test", reader.getInfo().get("INAM"));
+            Assert.assertEquals(10, reader.getFrameCount());
+            Assert.assertEquals(19f, reader.getData().getFloat(76), 0f);
+
+            final ByteBuffer part = reader.getData(8, 100);
+            Assert.assertEquals(72, part.remaining());
+            Assert.assertEquals(2f, part.getFloat(), 0f);
+
+            final BufferWrapper block = new BufferWrapper(20);
+            Assert.assertEquals(2, reader.readFrames(8, block));
+            Assert.assertEquals(16, block.getBufferUsed());
+            Assert.assertEquals(16f, ByteBuffer.wrap(block.getBuffer()).order(ByteOrder.LITTLE_ENDIAN).getFloat(), 0f);
+            Assert.assertEquals(0, reader.readFrames(10, block));
+        }
+    }
+
+    @Test
+    public void testReadStreamedAndRf64() throws Exception {
+        final File file = mTempFolder.newFile("stream.wav");
+        final byte[] pcm = pcm(4000);
+        final WavFileWriter writer = new WavFileWriter(file, new SpscByteRing(4096), 8000, 2, 16);
+        writer.write(pcm);
+        writer.close();
+        try (WavReader reader = new WavReader(file)) {
+            Assert.assertEquals(WavFileWriter.HEADER_SIZE, reader.getDataOffset());
+            Assert.assertEquals(1000, reader.getFrameCount());
+            Assert.assertEquals(-1, reader.getFactSampleCount());
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            WavFileWriter.patchHeader(raf.getChannel(), pcm.length, 4, true);
+        }
+        try (WavReader reader = new WavReader(file)) {
+            Assert.assertEquals(pcm.length, reader.getDataSize());
+            Assert.assertEquals(1000, reader.getFactSampleCount());
+            Assert.assertEquals(pcm[3999], reader.getData().get(3999));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotWav() throws Exception {
+        new WavReader(writeFile(new byte[64])).close();
+    }
+
+}